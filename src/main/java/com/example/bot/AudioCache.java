@@ -0,0 +1,155 @@
+package com.example.bot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Shared on-disk audio cache, keyed by YouTube video ID and shared by every guild.
+ * Files live in {@link ConfigUtils#CACHE_FOLDER} as {@code <videoId>.webm}; the least recently
+ * used files are evicted once the total size goes over {@link ConfigUtils#cacheMaxBytes}.
+ */
+public class AudioCache {
+    private static final Logger logger = LoggerFactory.getLogger(AudioCache.class);
+
+    private static final Pattern VIDEO_ID = Pattern.compile(
+            "(?:youtube\\.com/(?:watch\\?(?:.*&)?v=|shorts/|embed/|live/)|youtu\\.be/)([A-Za-z0-9_-]{11})");
+
+    // videoId → file size; access-ordered so iteration starts at the least recently used entry
+    private static final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private static long totalBytes = 0; // guarded by AudioCache.class
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    // Rebuilds the index from whatever is already in the cache folder (oldest first, so LRU order survives restarts)
+    public static synchronized void init() {
+        File dir = new File(ConfigUtils.CACHE_FOLDER);
+        if (!dir.exists() && !dir.mkdirs()) {
+            logger.error("Failed to create audio cache folder: " + dir.getAbsolutePath());
+            return;
+        }
+
+        entries.clear();
+        totalBytes = 0;
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".webm"));
+        if (files != null) {
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (File f : files) {
+                if (ProgressiveAudioSourceManager.isIncomplete(f)) {
+                    ProgressiveAudioSourceManager.discardIncomplete(f);
+                    continue;
+                }
+                String videoId = f.getName().substring(0, f.getName().length() - ".webm".length());
+                entries.put(videoId, f.length());
+                totalBytes += f.length();
+            }
+        }
+        logger.info("Audio cache loaded: {} file(s), {} MB (budget {} MB).",
+                entries.size(), totalBytes / (1024 * 1024), ConfigUtils.cacheMaxBytes / (1024 * 1024));
+        evictOverBudget(null);
+    }
+
+    // Where a video's audio lives in the cache, whether or not it has been downloaded yet
+    public static File fileFor(String videoId) {
+        return new File(ConfigUtils.CACHE_FOLDER, videoId + ".webm");
+    }
+
+    public static boolean isCacheFile(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        return parent != null && parent.equals(new File(ConfigUtils.CACHE_FOLDER).getAbsoluteFile());
+    }
+
+    // Parses the video ID out of a YouTube URL; null for anything else (searches are looked up in TrackIndex)
+    public static String videoIdFromUrl(String input) {
+        Matcher m = VIDEO_ID.matcher(input);
+        return m.find() ? m.group(1) : null;
+    }
+
+    /**
+     * Returns a lease on the cached file for a video and marks it as recently used, or null on a miss. The
+     * lease is taken under the cache lock, so eviction can't delete the file before the caller holds it.
+     * Updates the hit/miss counters.
+     */
+    public static synchronized FileLeaseManager.Lease lookupAndLease(String videoId) {
+        File file = fileFor(videoId);
+        if (entries.get(videoId) != null && file.isFile()) {
+            file.setLastModified(System.currentTimeMillis());
+            hits.incrementAndGet();
+            return FileLeaseManager.acquire(file);
+        }
+        if (entries.remove(videoId) != null) {
+            // File vanished from disk behind our back
+            totalBytes = entries.values().stream().mapToLong(Long::longValue).sum();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    // Records a freshly downloaded file and evicts older entries if the cache is over budget
+    public static synchronized void commit(String videoId) {
+        File file = fileFor(videoId);
+        if (!file.isFile()) return;
+        Long previous = entries.put(videoId, file.length());
+        totalBytes += file.length() - (previous != null ? previous : 0);
+        evictOverBudget(videoId);
+    }
+
+    private static void evictOverBudget(String keep) {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > ConfigUtils.cacheMaxBytes && it.hasNext()) {
+            Map.Entry<String, Long> e = it.next();
+            if (e.getKey().equals(keep)) continue;
+            File victim = fileFor(e.getKey());
+            // Files still queued or playing somewhere are skipped; releasing the last lease calls trim()
+            if (!FileLeaseManager.deleteIfUnleased(victim)) {
+                if (!FileLeaseManager.isLeased(victim)) logger.warn("Failed to evict cached file: " + victim.getAbsolutePath());
+                continue;
+            }
+            it.remove();
+            totalBytes -= e.getValue();
+            evictions.incrementAndGet();
+            logger.info("Evicted {} from audio cache ({} MB in use).", e.getKey(), totalBytes / (1024 * 1024));
+        }
+    }
+
+    // Evicts down to the budget again, e.g. once files that were in use have been released
+    public static synchronized void trim() {
+        if (totalBytes > ConfigUtils.cacheMaxBytes) evictOverBudget(null);
+    }
+
+    static String normalizeQuery(String input) {
+        return input.replace("ytsearch:", "").trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    public static long getEvictions() {
+        return evictions.get();
+    }
+
+    public static synchronized int getFileCount() {
+        return entries.size();
+    }
+
+    public static synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+}
@@ -1,32 +1,46 @@
 package com.example.bot;
 
+import com.sedmelluq.discord.lavaplayer.format.StandardAudioDataFormats;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
-import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrame;
+import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
 import net.dv8tion.jda.api.audio.AudioSendHandler;
 
 import java.nio.ByteBuffer;
 
-// This class connects the audio player to Discord's voice channel
+/**
+ * Connects a guild's audio player to Discord's voice connection. JDA asks for a frame every 20 ms, so nothing
+ * here allocates: lavaplayer copies each Opus frame into one {@link MutableAudioFrame} backed by a direct buffer
+ * owned by this handler, and that same buffer is handed to JDA. One handler lives as long as its guild's player.
+ */
 public class AudioPlayerSendHandler implements AudioSendHandler {
-    private final AudioPlayer audioPlayer; // The audio player for playback
-    private AudioFrame lastFrame;         // Stores the most recent audio frame
+    private final AudioPlayer audioPlayer;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(StandardAudioDataFormats.DISCORD_OPUS.maximumChunkSize());
+    private final MutableAudioFrame frame = new MutableAudioFrame();
+
+    // Written only by JDA's audio thread; read by !stats
+    private volatile long framesProvided = 0;
+    private volatile long framesMissed = 0; // no frame ready while a track was playing (underrun)
 
-    // Constructor to initialize the audio player
     public AudioPlayerSendHandler(AudioPlayer audioPlayer) {
         this.audioPlayer = audioPlayer;
+        frame.setBuffer(buffer);
     }
 
-    // Checks if there's audio data available to send
+    // Checks if there's audio data available to send; the frame is written straight into the buffer
     @Override
     public boolean canProvide() {
-        lastFrame = audioPlayer.provide(); // Fetch the next audio frame
-        return lastFrame != null;         // Return true if a frame exists
+        if (audioPlayer.provide(frame)) {
+            framesProvided++;
+            return true;
+        }
+        if (audioPlayer.getPlayingTrack() != null && !audioPlayer.isPaused()) framesMissed++;
+        return false;
     }
 
-    // Provides the audio data to Discord
+    // Provides the audio data to Discord: the buffer canProvide() just filled
     @Override
     public ByteBuffer provide20MsAudio() {
-        return ByteBuffer.wrap(lastFrame.getData()); // Convert audio frame to ByteBuffer
+        return buffer.flip();
     }
 
     // Indicates that the audio being sent is in Opus format
@@ -34,4 +48,12 @@ public class AudioPlayerSendHandler implements AudioSendHandler {
     public boolean isOpus() {
         return true; // Discord requires Opus-encoded audio
     }
+
+    public long getFramesProvided() {
+        return framesProvided;
+    }
+
+    public long getFramesMissed() {
+        return framesMissed;
+    }
 }
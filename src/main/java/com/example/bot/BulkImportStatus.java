@@ -0,0 +1,227 @@
+package com.example.bot;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One progress embed for a whole playlist import, in place of a "Searching…" message per track. Each track
+ * is counted through {@link #track} as it is queued and reports there once it downloads; the embed shows
+ * resolved/ready/failed counts and the track currently downloading, and is edited at most once per
+ * {@link #EDIT_INTERVAL_MS} however fast the tracks report.
+ */
+public class BulkImportStatus {
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportStatus.class);
+
+    private static final long EDIT_INTERVAL_MS = 5000;
+    private static final int BAR_WIDTH = 16;
+    private static final int MAX_FAILED_SHOWN = 5;
+
+    private static final ScheduledExecutorService editor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "bulk-import-editor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String source;
+    private int total;                  // grows while the playlist is still being read
+    private boolean expanding = false;  // entries are still arriving
+    private int added = 0;
+    private Message message;            // null until Discord confirms the send
+    private boolean sendFailed = false;
+    private boolean editScheduled = false;
+    private long lastEditAt = 0;
+
+    private int resolved = 0;
+    private int ready = 0;
+    private int failed = 0;
+    private int cancelled = 0;
+    private final List<String> failedTitles = new ArrayList<>();
+    private Track current;              // track whose progress is shown
+
+    private BulkImportStatus(String source, int total) {
+        this.source = source;
+        this.total = total;
+    }
+
+    /**
+     * Sends the embed for an import whose entries are still being read, and returns right away; tracks can be
+     * queued before it arrives. expectedTotal is the playlist size if known, otherwise 0; the count grows with
+     * each {@link #track} until {@link #expanded}.
+     */
+    public static BulkImportStatus startExpanding(GuildMessageChannel channel, String source, int expectedTotal) {
+        BulkImportStatus status = new BulkImportStatus(source, Math.max(0, expectedTotal));
+        status.expanding = true;
+        channel.sendMessageEmbeds(status.render()).queue(status::onSent, status::onSendFailed);
+        return status;
+    }
+
+    // Counts one queued track of the import and returns its status sink
+    public synchronized TrackStatus track(String displayTitle) {
+        added++;
+        if (added > total) total = added;
+        return new Track(displayTitle);
+    }
+
+    // Every entry has been read (or reading stopped); the tracks queued so far are the final total
+    public void expanded() {
+        synchronized (this) {
+            expanding = false;
+            total = added;
+        }
+        markDirty();
+    }
+
+    private synchronized void onSent(Message sent) {
+        message = sent;
+        lastEditAt = System.currentTimeMillis();
+        if (editScheduled) {
+            editScheduled = false;
+            markDirty();
+        }
+    }
+
+    private synchronized void onSendFailed(Throwable error) {
+        sendFailed = true;
+        logger.warn("Couldn't send import status for {} (import continues): {}", source, error.getMessage());
+    }
+
+    // Schedules an edit for the next free slot on the cadence; changes before then ride along with it
+    private synchronized void markDirty() {
+        if (sendFailed || editScheduled) return;
+        editScheduled = true;
+        if (message == null) return; // onSent picks it up
+        long delay = Math.max(0, lastEditAt + EDIT_INTERVAL_MS - System.currentTimeMillis());
+        editor.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        MessageEmbed embed;
+        synchronized (this) {
+            editScheduled = false;
+            lastEditAt = System.currentTimeMillis();
+            embed = render();
+        }
+        message.editMessageEmbeds(embed).queue(null, e -> {});
+    }
+
+    // Caller holds this (or the object isn't shared yet)
+    private MessageEmbed render() {
+        int finished = ready + failed + cancelled;
+        double fraction = total > 0 ? Math.min(1.0, (double) finished / total) : expanding ? 0 : 1;
+        int filled = (int) Math.round(fraction * BAR_WIDTH);
+        boolean done = !expanding && finished >= total;
+
+        EmbedBuilder eb = new EmbedBuilder()
+                .setColor(new Color(0x1db954))
+                .setTitle("📋 Importing " + source)
+                .setDescription("`" + "█".repeat(filled) + "░".repeat(BAR_WIDTH - filled) + "` "
+                        + finished + "/" + total + (expanding ? "  ·  reading playlist…" : done ? "  ✅" : ""));
+        eb.addField("Resolved", String.valueOf(resolved), true);
+        eb.addField("Ready", String.valueOf(ready), true);
+        eb.addField("Failed", String.valueOf(failed), true);
+
+        if (current != null && !done) {
+            String now = "`" + current.displayTitle + "`";
+            if (current.progress != null) now += "\n" + DownloadStatusMessage.progressLine(current.progress);
+            eb.addField("Now downloading", now, false);
+        }
+        if (!failedTitles.isEmpty()) {
+            String shown = String.join("\n", failedTitles.stream().map(t -> "• `" + t + "`").toList());
+            if (failed > failedTitles.size()) shown += "\n…and " + (failed - failedTitles.size()) + " more";
+            eb.addField("Couldn't download", shown, false);
+        }
+        eb.setFooter("Tracks download " + ConfigUtils.lookaheadTracks + " at a time as the queue plays");
+        return eb.build();
+    }
+
+    private final class Track implements TrackStatus {
+        private final String displayTitle;
+        private boolean counted = false; // resolved
+        private boolean done = false;
+        private YtDlpOutput.Progress progress;
+
+        Track(String displayTitle) {
+            this.displayTitle = displayTitle;
+        }
+
+        @Override
+        public void downloading(YtDlpOutput.TrackInfo info) {
+            synchronized (BulkImportStatus.this) {
+                countResolved();
+                current = this;
+                progress = null;
+            }
+            markDirty();
+        }
+
+        @Override
+        public void progress(YtDlpOutput.Progress p) {
+            synchronized (BulkImportStatus.this) {
+                progress = p;
+                if (current != this) return;
+            }
+            markDirty();
+        }
+
+        @Override
+        public void streaming(long durationSeconds) {
+            synchronized (BulkImportStatus.this) {
+                countResolved();
+            }
+            markDirty();
+        }
+
+        @Override
+        public void queued(long durationSeconds) {
+            synchronized (BulkImportStatus.this) {
+                if (done) return;
+                done = true;
+                countResolved();
+                ready++;
+                if (current == this) current = null;
+            }
+            markDirty();
+        }
+
+        @Override
+        public void failed(String text) {
+            synchronized (BulkImportStatus.this) {
+                if (done) return;
+                done = true;
+                failed++;
+                if (failedTitles.size() < MAX_FAILED_SHOWN) failedTitles.add(displayTitle);
+                if (current == this) current = null;
+            }
+            markDirty();
+        }
+
+        @Override
+        public void delete() {
+            synchronized (BulkImportStatus.this) {
+                if (done) return;
+                done = true;
+                cancelled++;
+                if (current == this) current = null;
+            }
+            markDirty();
+        }
+
+        // Caller holds BulkImportStatus.this
+        private void countResolved() {
+            if (counted) return;
+            counted = true;
+            resolved++;
+        }
+    }
+}
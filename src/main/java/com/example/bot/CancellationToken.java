@@ -0,0 +1,49 @@
+package com.example.bot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cancellation signal shared by the download jobs of one guild. {@link DownloadWorkerPool#cancelGuild} cancels
+ * the guild's current token and hands out a fresh one for later jobs; running jobs react through the handlers
+ * they registered.
+ */
+public class CancellationToken {
+    private final List<Runnable> handlers = new ArrayList<>(); // guarded by this
+    private volatile boolean cancelled = false;
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Runs the handler when the token is cancelled, or right away if it already is.
+     *
+     * @return unregisters the handler
+     */
+    public Runnable onCancel(Runnable handler) {
+        synchronized (this) {
+            if (!cancelled) {
+                handlers.add(handler);
+                return () -> {
+                    synchronized (this) {
+                        handlers.remove(handler);
+                    }
+                };
+            }
+        }
+        handler.run();
+        return () -> {};
+    }
+
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled) return;
+            cancelled = true;
+            toRun = new ArrayList<>(handlers);
+            handlers.clear();
+        }
+        toRun.forEach(Runnable::run);
+    }
+}
@@ -11,16 +11,15 @@ import net.dv8tion.jda.api.components.buttons.Button;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import java.awt.Color;
-import java.io.IOException;
-import java.util.concurrent.BlockingQueue;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import net.dv8tion.jda.api.Permission;
@@ -32,13 +31,12 @@ public class CommandHandler {
     public static final String BTN_QUEUE_PREV = "queue:prev";
     public static final String BTN_QUEUE_NEXT = "queue:next";
 
-    public static void handleMessage(MessageReceivedEvent event, Spotibot bot, AudioPlayerManager playerManager, TrackSchedulerRegistry trackSchedulerRegistry, BlockingQueue<Runnable> downloadQueue) {
+    public static void handleMessage(MessageReceivedEvent event, Spotibot bot, AudioPlayerManager playerManager, TrackSchedulerRegistry trackSchedulerRegistry, DownloadWorkerPool downloadPool) {
         String message = event.getMessage().getContentRaw();
         GuildMessageChannel messageChannel = event.getChannel().asGuildMessageChannel();
         Guild guild = event.getGuild();
-        TrackScheduler trackScheduler = trackSchedulerRegistry.getOrCreate(guild, bot);
-
-        String serverFolder = ConfigUtils.BASE_DOWNLOAD_FOLDER + guild.getId() + "/";
+        // Only !play creates a player; the other music commands work on the one the guild already has, if any
+        TrackScheduler existingScheduler = trackSchedulerRegistry.get(guild);
 
         if (message.startsWith("!play ")) {
             String input = message.replace("!play ", "").trim();
@@ -50,89 +48,110 @@ public class CommandHandler {
                     return;
                 }
 
-                guild.getAudioManager().setSendingHandler(new AudioPlayerSendHandler(trackScheduler.getPlayer()));
+                // Only now, so a !play that can't join a channel doesn't create a player or reset its idle timer
+                TrackScheduler trackScheduler = trackSchedulerRegistry.getOrCreate(guild, bot);
+
+                guild.getAudioManager().setSendingHandler(trackScheduler.getSendHandler());
                 guild.getAudioManager().openAudioConnection(voiceChannel);
                 trackScheduler.getPlayer().setVolume(ConfigUtils.defaultVolume);
                 trackScheduler.setNotifyChannel(messageChannel);
 
-                if (input.contains("spotify.com/track")) {
-                    String trackId = SpotifyUtils.extractSpotifyId(input);
-                    String trackTitle = SpotifyUtils.getTrackTitle(trackId);
-                    DownloadQueueHandler.queueAndPlay(trackTitle, trackScheduler, messageChannel, guild, serverFolder, downloadQueue);
-                } else if (input.contains("spotify.com/playlist")) {
-                    String playlistId = SpotifyUtils.extractSpotifyId(input);
-                    try {
-                        List<String> trackTitles = SpotifyUtils.getPlaylistTracks(playlistId);
-                        if (trackTitles.isEmpty()) {
-                            messageChannel.sendMessage("❌ That Spotify playlist is empty or has no playable tracks.").queue();
-                            return;
-                        }
-                        messageChannel.sendMessage("📋 Found **" + trackTitles.size() + "** tracks. Queuing...").queue();
-                        for (String trackTitle : trackTitles) {
-                            DownloadQueueHandler.queueAndPlay(trackTitle, trackScheduler, messageChannel, guild, serverFolder, downloadQueue);
-                        }
-                    } catch (IOException e) {
-                        if ("SPOTIFY_NOT_ACCESSIBLE".equals(e.getMessage())) {
-                            messageChannel.sendMessage(
-                                "❌ **That playlist isn't accessible.**\n" +
-                                "Spotify's curated playlists (Discover Weekly, Daily Mixes, etc.) are locked to your account and can't be read by bots.\n\n" +
-                                "**Workaround:** Copy the songs into your own Spotify playlist, make it public, and share that link instead."
-                            ).queue();
-                        } else {
-                            messageChannel.sendMessage("❌ Spotify error: " + e.getMessage()).queue();
+                // Spotify lookups are asynchronous; the event thread never waits on the Spotify API
+                List<SpotifyUtils.SpotifyLink> spotifyLinks = SpotifyUtils.findLinks(input);
+                if (spotifyLinks.size() == 1 && spotifyLinks.get(0).type() == SpotifyUtils.LinkType.TRACK) {
+                    String trackId = spotifyLinks.get(0).id();
+                    // Seen this track before → skip the Spotify API call
+                    String knownTitle = TrackIndex.spotifyQuery(trackId);
+                    CompletableFuture<String> trackTitle = knownTitle != null
+                            ? CompletableFuture.completedFuture(knownTitle)
+                            : SpotifyUtils.getTrackTitle(trackId);
+                    trackScheduler.incrementPendingDownloads();
+                    trackTitle.whenComplete((title, error) -> {
+                        try {
+                            // A !stop while Spotify was answering dropped this scheduler; don't queue on it
+                            if (trackSchedulerRegistry.get(guild) != trackScheduler) return;
+                            if (error != null) {
+                                reportSpotifyError(messageChannel, SpotifyUtils.LinkType.TRACK, error);
+                                return;
+                            }
+                            DownloadQueueHandler.queueAndPlay(title, trackScheduler, messageChannel, guild, downloadPool);
+                        } finally {
+                            trackScheduler.decrementPendingDownloads();
                         }
-                        return;
-                    }
+                    });
+                } else if (!spotifyLinks.isEmpty()) {
+                    importSpotifyLinks(spotifyLinks, trackScheduler, trackSchedulerRegistry, messageChannel, guild, downloadPool);
                 } else if (input.contains("youtube.com/playlist")) {
                     final GuildMessageChannel ch = messageChannel;
                     messageChannel.sendMessage("📋 Fetching YouTube playlist...").queue();
                     trackScheduler.incrementPendingDownloads();
-                    downloadQueue.offer(() -> {
+                    downloadPool.submit(guild.getIdLong(), DownloadWorkerPool.Lane.BULK, () -> {
+                        // Entries are queued as yt-dlp reads them; the import embed appears with the first one
+                        AtomicReference<BulkImportStatus> bulkImport = new AtomicReference<>();
                         try {
-                            List<String> videoUrls = DownloadQueueHandler.getYouTubePlaylistUrls(input);
-                            if (videoUrls.isEmpty()) {
-                                ch.sendMessage("❌ Could not fetch playlist or it's empty.").queue();
-                            } else {
-                                ch.sendMessage("📋 Found **" + videoUrls.size() + "** tracks. Queuing...").queue();
-                                for (String url : videoUrls) {
-                                    DownloadQueueHandler.queueAndPlay(url, trackScheduler, ch, guild, serverFolder, downloadQueue);
+                            int count = DownloadQueueHandler.expandYouTubePlaylist(input, entry -> {
+                                if (bulkImport.get() == null) {
+                                    bulkImport.set(BulkImportStatus.startExpanding(ch, "YouTube playlist", entry.playlistCount()));
                                 }
-                            }
+                                DownloadQueueHandler.queueAndPlay(entry.url(), entry.title(), entry.durationSeconds(),
+                                        trackScheduler, ch, guild, downloadPool, bulkImport.get());
+                            });
+                            if (count == 0) ch.sendMessage("❌ Could not fetch playlist or it's empty.").queue();
                         } catch (Exception e) {
                             ch.sendMessage("❌ Error fetching playlist: " + e.getMessage()).queue();
                         } finally {
+                            if (bulkImport.get() != null) bulkImport.get().expanded();
                             trackScheduler.decrementPendingDownloads();
                         }
-                    });
+                    }, trackScheduler::decrementPendingDownloads);
                 } else if (input.contains("youtube.com") || input.contains("youtu.be")) {
-                    DownloadQueueHandler.queueAndPlay(input, trackScheduler, messageChannel, guild, serverFolder, downloadQueue);
+                    DownloadQueueHandler.queueAndPlay(input, trackScheduler, messageChannel, guild, downloadPool);
                 } else {
-                    DownloadQueueHandler.queueAndPlay(input, trackScheduler, messageChannel, guild, serverFolder, downloadQueue);
+                    DownloadQueueHandler.queueAndPlay(input, trackScheduler, messageChannel, guild, downloadPool);
                 }
             } catch (Exception e) {
                 messageChannel.sendMessage("An error occurred: " + e.getMessage()).queue();
             }
 
+        } else if (message.equalsIgnoreCase("!stop")) {
+            handleStopCommand(guild, messageChannel, existingScheduler, bot, trackSchedulerRegistry, downloadPool);
+
+        } else if (isPlayerCommand(message) && existingScheduler == null) {
+            messageChannel.sendMessage("Nothing is playing right now.").queue();
+
         } else if (message.equalsIgnoreCase("!pause")) {
-            handlePauseCommand(messageChannel, trackScheduler);
+            handlePauseCommand(messageChannel, existingScheduler);
 
         } else if (message.equalsIgnoreCase("!resume")) {
-            handleResumeCommand(messageChannel, trackScheduler);
+            handleResumeCommand(messageChannel, existingScheduler);
 
         } else if (message.toLowerCase().startsWith("!volume")) {
-            handleVolumeCommand(message, messageChannel, trackScheduler);
+            handleVolumeCommand(message, messageChannel, existingScheduler);
 
         } else if (message.equalsIgnoreCase("!np") || message.equalsIgnoreCase("!nowplaying")) {
-            handleNowPlayingCommand(messageChannel, trackScheduler);
+            handleNowPlayingCommand(messageChannel, existingScheduler);
 
         } else if (message.equalsIgnoreCase("!skip")) {
-            handleSkipCommand(guild, messageChannel, trackScheduler);
-
-        } else if (message.equalsIgnoreCase("!stop")) {
-            handleStopCommand(guild, messageChannel, trackScheduler, serverFolder, bot, trackSchedulerRegistry, downloadQueue);
+            handleSkipCommand(guild, messageChannel, existingScheduler);
 
         } else if (message.equalsIgnoreCase("!queue")) {
-            showQueue(event, trackScheduler, 0, bot);
+            showQueue(event, existingScheduler, 0, bot);
+
+        } else if (message.toLowerCase().startsWith("!remove")) {
+            handleRemoveCommand(message, messageChannel, existingScheduler);
+
+        } else if (message.toLowerCase().startsWith("!move")) {
+            handleMoveCommand(message, messageChannel, existingScheduler);
+
+        } else if (message.equalsIgnoreCase("!shuffle")) {
+            handleShuffleCommand(messageChannel, existingScheduler);
+
+        } else if (message.equalsIgnoreCase("!clear")) {
+            existingScheduler.clearQueue().thenAccept(cleared ->
+                    messageChannel.sendMessage("🧹 Cleared " + cleared + " track(s) from the queue.").queue());
+
+        } else if (message.equalsIgnoreCase("!stats")) {
+            handleStatsCommand(guild, messageChannel, downloadPool, existingScheduler, trackSchedulerRegistry);
 
         } else if (message.equalsIgnoreCase("!help")) {
             messageChannel.sendMessage(getHelpMessage()).queue();
@@ -192,6 +211,105 @@ public class CommandHandler {
         }
     }
 
+    // Commands that act on the guild's existing player (everything musical except !play, !stop and !stats)
+    private static boolean isPlayerCommand(String message) {
+        String lower = message.toLowerCase();
+        return lower.equals("!pause") || lower.equals("!resume") || lower.startsWith("!volume")
+                || lower.equals("!np") || lower.equals("!nowplaying") || lower.equals("!skip") || lower.equals("!queue")
+                || lower.startsWith("!remove") || lower.startsWith("!move") || lower.equals("!shuffle") || lower.equals("!clear");
+    }
+
+    /**
+     * Queues the tracks behind Spotify playlist, album and artist links, or several links pasted at once.
+     * Links are read one after another in message order, with runs of consecutive track links looked up as a
+     * single batch; every page is queued as it arrives, under one import embed for the whole message.
+     * A !stop (or the idle sweep) replaces the guild's scheduler; the import notices and stops fetching.
+     */
+    private static void importSpotifyLinks(List<SpotifyUtils.SpotifyLink> links, TrackScheduler trackScheduler,
+                                           TrackSchedulerRegistry trackSchedulerRegistry, GuildMessageChannel channel,
+                                           Guild guild, DownloadWorkerPool downloadPool) {
+        String source = links.size() == 1 ? "Spotify " + links.get(0).type().label : "Spotify links";
+        BooleanSupplier stopped = () -> trackSchedulerRegistry.get(guild) != trackScheduler;
+        AtomicReference<BulkImportStatus> bulkImport = new AtomicReference<>();
+        Consumer<SpotifyUtils.TrackPage> onPage = page -> {
+            // Thrown into the page fetch, which skips the pages it hasn't requested yet
+            if (stopped.getAsBoolean()) throw new CancellationException("Import stopped");
+            if (page.queries().isEmpty()) return;
+            if (bulkImport.get() == null) {
+                bulkImport.set(BulkImportStatus.startExpanding(channel, source, page.total()));
+            }
+            for (String title : page.queries()) {
+                DownloadQueueHandler.queueAndPlay(title, null, 0, trackScheduler, channel, guild, downloadPool, bulkImport.get());
+            }
+        };
+
+        AtomicInteger queued = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        // Keeps the scheduler in the channel (and out of the idle sweep) while links are still being read
+        trackScheduler.incrementPendingDownloads();
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        List<String> trackIds = new ArrayList<>();
+        for (int i = 0; i < links.size(); i++) {
+            SpotifyUtils.SpotifyLink link = links.get(i);
+            if (link.type() == SpotifyUtils.LinkType.TRACK) {
+                trackIds.add(link.id());
+                boolean nextIsTrack = i + 1 < links.size() && links.get(i + 1).type() == SpotifyUtils.LinkType.TRACK;
+                if (nextIsTrack) continue;
+            }
+            List<String> batch = List.copyOf(trackIds);
+            trackIds.clear();
+            chain = chain.thenCompose(done -> {
+                if (stopped.getAsBoolean()) return CompletableFuture.completedFuture(null); // the rest isn't fetched
+                return (batch.isEmpty()
+                        ? SpotifyUtils.streamLink(link, onPage)
+                        : SpotifyUtils.streamTracks(batch, onPage)
+                ).handle((count, error) -> {
+                    // One bad link doesn't stop the rest of the message
+                    if (error == null) {
+                        queued.addAndGet(count);
+                    } else if (!stopped.getAsBoolean()) {
+                        failures.incrementAndGet();
+                        reportSpotifyError(channel, batch.isEmpty() ? link.type() : SpotifyUtils.LinkType.TRACK, error);
+                    }
+                    return null;
+                });
+            });
+        }
+        chain.whenComplete((done, error) -> {
+            if (bulkImport.get() != null) bulkImport.get().expanded();
+            trackScheduler.decrementPendingDownloads();
+            if (stopped.getAsBoolean()) return;
+            if (queued.get() == 0 && failures.get() == 0) {
+                channel.sendMessage("❌ That Spotify " + (links.size() == 1 ? links.get(0).type().label : "link")
+                        + " is empty or has no playable tracks.").queue();
+            }
+        });
+    }
+
+    private static void reportSpotifyError(GuildMessageChannel channel, SpotifyUtils.LinkType type, Throwable error) {
+        Throwable cause = SpotifyUtils.unwrap(error);
+        if (!"SPOTIFY_NOT_ACCESSIBLE".equals(cause.getMessage())) {
+            channel.sendMessage("❌ Spotify error: " + cause.getMessage()).queue();
+        } else if (type == SpotifyUtils.LinkType.PLAYLIST) {
+            channel.sendMessage(
+                "❌ **That playlist isn't accessible.**\n" +
+                "Spotify's curated playlists (Discover Weekly, Daily Mixes, etc.) are locked to your account and can't be read by bots.\n\n" +
+                "**Workaround:** Copy the songs into your own Spotify playlist, make it public, and share that link instead."
+            ).queue();
+        } else {
+            channel.sendMessage("❌ Spotify couldn't find that " + type.label + ".").queue();
+        }
+    }
+
+    // Frames sent vs. underruns (no frame ready mid-track), e.g. "30000 frames sent, 12 missed (0.04%)"
+    private static String formatAudioFrames(AudioPlayerSendHandler handler) {
+        long provided = handler.getFramesProvided();
+        long missed = handler.getFramesMissed();
+        if (provided + missed == 0) return "no audio sent yet";
+        return provided + " frames sent, " + missed + " missed ("
+                + String.format("%.2f", 100.0 * missed / (provided + missed)) + "%)";
+    }
+
 private static void handlePauseCommand(GuildMessageChannel messageChannel, TrackScheduler trackScheduler) {
         if (trackScheduler.getPlayer().getPlayingTrack() == null) {
             messageChannel.sendMessage("Nothing is playing right now.").queue();
@@ -234,14 +352,69 @@ private static void handlePauseCommand(GuildMessageChannel messageChannel, Track
         }
     }
 
+    // !remove <position>, positions as numbered in !queue
+    private static void handleRemoveCommand(String message, GuildMessageChannel messageChannel, TrackScheduler trackScheduler) {
+        String[] parts = message.trim().split("\\s+");
+        int position;
+        try {
+            position = Integer.parseInt(parts[1]);
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            messageChannel.sendMessage("Usage: `!remove <position>` (see `!queue` for positions)").queue();
+            return;
+        }
+        // The queue can change before the removal runs, so bad positions are reported from there
+        trackScheduler.removeAt(position - 1).whenComplete((removed, error) -> {
+            if (error != null) {
+                replyBadPosition(messageChannel, trackScheduler);
+                return;
+            }
+            messageChannel.sendMessage("🗑 Removed **" + removed.getDisplayTitle() + "** from the queue.").queue();
+        });
+    }
+
+    // !move <from> <to>, positions as numbered in !queue
+    private static void handleMoveCommand(String message, GuildMessageChannel messageChannel, TrackScheduler trackScheduler) {
+        String[] parts = message.trim().split("\\s+");
+        int from, to;
+        try {
+            from = Integer.parseInt(parts[1]);
+            to = Integer.parseInt(parts[2]);
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            messageChannel.sendMessage("Usage: `!move <from> <to>` (see `!queue` for positions)").queue();
+            return;
+        }
+        trackScheduler.move(from - 1, to - 1).whenComplete((moved, error) -> {
+            if (error != null) {
+                replyBadPosition(messageChannel, trackScheduler);
+                return;
+            }
+            messageChannel.sendMessage("↕ Moved **" + moved.getDisplayTitle() + "** to position " + to + ".").queue();
+        });
+    }
+
+    private static void replyBadPosition(GuildMessageChannel messageChannel, TrackScheduler trackScheduler) {
+        messageChannel.sendMessage("There's no track at that position. The queue has "
+                + trackScheduler.getQueue().size() + " track(s).").queue();
+    }
+
+    private static void handleShuffleCommand(GuildMessageChannel messageChannel, TrackScheduler trackScheduler) {
+        if (trackScheduler.getQueue().size() < 2) {
+            messageChannel.sendMessage("Not enough tracks in the queue to shuffle.").queue();
+            return;
+        }
+        trackScheduler.shuffle().thenAccept(size ->
+                messageChannel.sendMessage("🔀 Shuffled " + size + " track(s).").queue());
+    }
+
     private static void handleNowPlayingCommand(GuildMessageChannel messageChannel, TrackScheduler trackScheduler) {
-        AudioTrack current = trackScheduler.getCurrentTrack();
-        if (current == null || trackScheduler.getPlayer().getPlayingTrack() == null) {
+        TrackScheduler.NowPlaying nowPlaying = trackScheduler.getNowPlaying();
+        AudioTrack current = nowPlaying.track();
+        QueueEntry currentEntry = nowPlaying.entry();
+        if (current == null || currentEntry == null || trackScheduler.getPlayer().getPlayingTrack() == null) {
             messageChannel.sendMessage("Nothing is playing right now.").queue();
             return;
         }
-        String title = trackScheduler.getTitle(current.getIdentifier());
-        title = title != null ? title.replace("ytsearch:", "").trim() : current.getInfo().title;
+        String title = currentEntry.getDisplayTitle();
         EmbedBuilder eb = new EmbedBuilder()
                 .setColor(new Color(0x1db954))
                 .setTitle("🎵 Now Playing")
@@ -258,56 +431,96 @@ private static void handlePauseCommand(GuildMessageChannel messageChannel, Track
     }
 
     private static void handleSkipCommand(Guild guild, GuildMessageChannel messageChannel, TrackScheduler trackScheduler) {
-        if (trackScheduler.getPlayer().getPlayingTrack() != null) {
-            trackScheduler.nextTrack();
+        QueueEntry playing = trackScheduler.getCurrentEntry();
+        if (playing != null && trackScheduler.getPlayer().getPlayingTrack() != null) {
+            trackScheduler.skip(playing);
             messageChannel.sendMessage(ConfigUtils.skipEmoji + " Skipped.").queue(msg -> msg.suppressEmbeds(true).queue());
         } else {
             messageChannel.sendMessage("Nothing is playing right now.").queue(msg -> msg.suppressEmbeds(true).queue());
         }
     }
 
-    private static void handleStopCommand(Guild guild, GuildMessageChannel messageChannel, TrackScheduler trackScheduler, String serverFolder, Spotibot bot, TrackSchedulerRegistry trackSchedulerRegistry, BlockingQueue<Runnable> downloadQueue) {
-        logger.info("Stopping bot and clearing all states...");
+    private static void handleStopCommand(Guild guild, GuildMessageChannel messageChannel, TrackScheduler trackScheduler, Spotibot bot, TrackSchedulerRegistry trackSchedulerRegistry, DownloadWorkerPool downloadPool) {
+        logger.info("Stopping playback and cancelling downloads for guild {}...", guild.getId());
 
-        trackScheduler.clearQueueAndStop();
+        if (trackScheduler != null) trackScheduler.clearQueueAndStop();
         guild.getAudioManager().closeAudioConnection();
-        DownloadQueueHandler.clearDownloadsFolder(serverFolder);
 
-        if (bot != null && bot.getCurrentDownloadTask() != null && !bot.getCurrentDownloadTask().isDone()) {
-            bot.getCurrentDownloadTask().cancel(true);
-            try {
-                bot.getCurrentDownloadTask().get();
-            } catch (CancellationException | InterruptedException | ExecutionException e) {
-                logger.info("Handled cancellation exception: " + e.getMessage());
-            }
-            bot.setCurrentDownloadTask(null);
-        }
+        // Only this guild's work: its queued jobs are dropped, its running yt-dlp processes killed.
+        // Downloads another guild is also waiting for keep running for them.
+        downloadPool.cancelGuild(guild.getIdLong());
+        SharedDownload.cancelGuild(guild.getIdLong());
+        trackSchedulerRegistry.remove(guild);
 
-        if (bot != null) {
-            bot.getDownloadExecutor().shutdownNow();
-            try {
-                if (!bot.getDownloadExecutor().awaitTermination(10, TimeUnit.SECONDS)) {
-                    logger.warn("Executor did not terminate in time; forcing shutdown...");
-                    bot.getDownloadExecutor().shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                logger.error("Executor shutdown interrupted", e);
-            }
-
-            bot.getDownloadQueue().clear();
-            bot.setDownloadExecutor(Executors.newCachedThreadPool());
-            bot.startDownloadQueueProcessorPublic();
-        }
+        messageChannel.sendMessage(ConfigUtils.stopEmoji + " Stopped playback and reset the bot state. You can now add new songs.").queue(msg -> msg.suppressEmbeds(true).queue());
+    }
 
-        if (trackSchedulerRegistry != null) {
-            trackSchedulerRegistry.reset();
-        }
+    private static void handleStatsCommand(Guild guild, GuildMessageChannel messageChannel, DownloadWorkerPool downloadPool,
+                                           TrackScheduler trackScheduler, TrackSchedulerRegistry trackSchedulerRegistry) {
+        EmbedBuilder eb = new EmbedBuilder()
+                .setColor(new Color(0x1db954))
+                .setTitle("📊 Bot Stats");
+
+        DownloadWorkerPool.GuildStats own = downloadPool.getGuildStats(guild.getIdLong());
+        eb.addField("Download workers",
+                downloadPool.getBusyWorkers() + "/" + downloadPool.getWorkerCount() + " busy\n"
+                        + downloadPool.getQueuedJobs() + " queued across "
+                        + downloadPool.getActiveGuildStats().size() + " server(s)\n"
+                        + downloadPool.getDeadlineDispatches() + " started by deadline", true);
+        eb.addField("This server",
+                own.queued() + " queued, " + own.running() + " running\n"
+                        + own.completed() + " done, " + own.failed() + " failed\n"
+                        + (trackScheduler != null ? formatAudioFrames(trackScheduler.getSendHandler()) : "no player"), true);
+        eb.addField("Players",
+                trackSchedulerRegistry.getLiveCount() + " live\n"
+                        + trackSchedulerRegistry.getCreatedCount() + " created, "
+                        + trackSchedulerRegistry.getEvictedCount() + " evicted idle", true);
+        eb.addField("yt-dlp workers",
+                YtDlpWorkerPool.isEnabled()
+                        ? YtDlpWorkerPool.getLiveWorkers() + " running, " + YtDlpWorkerPool.getIdleWorkers() + " idle\n"
+                                + YtDlpWorkerPool.getRecycledWorkers() + " recycled"
+                        : "off (one-shot yt-dlp)", true);
+        eb.addField("Downloads",
+                DownloadMetrics.getCompleted() + " done, " + DownloadMetrics.getFailed() + " failed, "
+                        + SharedDownload.getStarted() + " yt-dlp run(s), " + SharedDownload.getCoalesced() + " shared, "
+                        + DownloadQueueHandler.formatFileSize(DownloadMetrics.getTotalBytes()) + "\n"
+                        + "avg " + DownloadQueueHandler.formatFileSize((long) DownloadMetrics.getAverageBytesPerSecond()) + "/s, "
+                        + "recent " + DownloadQueueHandler.formatFileSize((long) DownloadMetrics.getRecentBytesPerSecond()) + "/s, "
+                        + "peak " + DownloadQueueHandler.formatFileSize((long) DownloadMetrics.getPeakBytesPerSecond()) + "/s", false);
+        DownloadWorkerPool.LaneStats interactive = downloadPool.getLaneStats(DownloadWorkerPool.Lane.INTERACTIVE);
+        DownloadWorkerPool.LaneStats bulk = downloadPool.getLaneStats(DownloadWorkerPool.Lane.BULK);
+        eb.addField("Queue wait",
+                "!play: " + interactive.queued() + " queued, avg " + interactive.averageWaitMs() + " ms, max " + interactive.maxWaitMs() + " ms\n"
+                        + "playlists: " + bulk.queued() + " queued, avg " + bulk.averageWaitMs() + " ms, max " + bulk.maxWaitMs() + " ms\n"
+                        + downloadPool.getPromotedDispatches() + " playlist job(s) promoted", false);
+        eb.addField("Playback stalls",
+                DownloadMetrics.getDeadlineMisses() + " missed deadline(s)\n"
+                        + DownloadQueueHandler.formatDuration(DownloadMetrics.getStalledMillis() / 1000) + " silent waiting", true);
+        eb.addField("Spotify API",
+                SpotifyRateLimiter.getRequests() + " requests, " + SpotifyRateLimiter.getDelayed() + " rate-limited\n"
+                        + SpotifyRateLimiter.getThrottled() + " throttled (429), " + SpotifyRateLimiter.getRetried() + " retried, "
+                        + SpotifyRateLimiter.getBudgetExhausted() + " out of retries", true);
+        eb.addField("Processes",
+                ProcessRunner.getLiveProcesses() + " running, " + ProcessRunner.getStarted() + " started\n"
+                        + ProcessRunner.getTimedOut() + " timed out, " + ProcessRunner.getKilled() + " killed, "
+                        + ProcessRunner.getOrphansReaped() + " orphans reaped", true);
+        eb.addField("Audio cache",
+                AudioCache.getFileCount() + " file(s), "
+                        + (AudioCache.getTotalBytes() / (1024 * 1024)) + "/" + (ConfigUtils.cacheMaxBytes / (1024 * 1024)) + " MB\n"
+                        + AudioCache.getHits() + " hits, " + AudioCache.getMisses() + " misses, "
+                        + AudioCache.getEvictions() + " evictions\n"
+                        + FileLeaseManager.getLeasedFiles() + " file(s) in use, "
+                        + FileLeaseManager.getDeferredEvictions() + " evictions deferred\n"
+                        + "Track index: " + TrackIndex.getSize() + " searches, " + TrackIndex.getHits() + " hits, "
+                        + TrackIndex.getMisses() + " misses (" + TrackIndex.getExpired() + " expired)\n"
+                        + "Playlists: " + PlaylistCache.getSize() + " cached, " + PlaylistCache.getHits() + " reused, "
+                        + PlaylistCache.getMisses() + " fetched", false);
 
-        messageChannel.sendMessage(ConfigUtils.stopEmoji + " Stopped playback and reset the bot state. You can now add new songs.").queue(msg -> msg.suppressEmbeds(true).queue());
+        messageChannel.sendMessageEmbeds(eb.build()).queue();
     }
 
     static void showQueue(MessageReceivedEvent event, TrackScheduler trackScheduler, int page, Spotibot bot) {
-        LinkedBlockingQueue<AudioTrack> playbackQueue = trackScheduler.getQueue();
+        PlaybackQueue playbackQueue = trackScheduler.getQueue();
 
         if (bot != null) bot.getQueuePageMap().put(event.getGuild().getIdLong(), page);
 
@@ -322,31 +535,30 @@ private static void handlePauseCommand(GuildMessageChannel messageChannel, Track
     }
 
     public static EmbedBuilder buildQueueEmbed(TrackScheduler trackScheduler,
-                                                LinkedBlockingQueue<AudioTrack> playbackQueue,
+                                                PlaybackQueue playbackQueue,
                                                 int page) {
         EmbedBuilder eb = new EmbedBuilder()
                 .setTitle("🎶 Queue")
                 .setColor(new Color(0x1db954));
 
-        AudioTrack currentTrack = trackScheduler.getCurrentTrack();
-        if (currentTrack != null) {
-            String title = trackScheduler.getTitle(currentTrack.getIdentifier());
-            title = title != null ? title.replace("ytsearch:", "").trim() : "Unknown";
+        QueueEntry currentEntry = trackScheduler.getCurrentEntry();
+        if (currentEntry != null) {
+            String title = currentEntry.getDisplayTitle();
             eb.appendDescription("🎵 **Now Playing:** " + title + "\n\n");
         }
 
         int total = playbackQueue.size();
         int startIndex = page * ConfigUtils.QUEUE_PAGE_SIZE;
-        int endIndex = Math.min(startIndex + ConfigUtils.QUEUE_PAGE_SIZE, total);
 
-        List<AudioTrack> trackList = new ArrayList<>(playbackQueue);
-        if (trackList.isEmpty()) {
+        // Only the page being shown is read from the queue
+        List<QueueEntry> pageEntries = playbackQueue.range(startIndex, ConfigUtils.QUEUE_PAGE_SIZE);
+        if (total == 0) {
             eb.appendDescription("_Queue is empty._");
         } else {
-            for (int i = startIndex; i < endIndex; i++) {
-                String title = trackScheduler.getTitle(trackList.get(i).getIdentifier());
-                title = title != null ? title.replace("ytsearch:", "").trim() : "Unknown";
-                eb.appendDescription("📍 **" + (i + 1) + ".** " + title + "\n");
+            for (int i = 0; i < pageEntries.size(); i++) {
+                QueueEntry entry = pageEntries.get(i);
+                String marker = entry.getState() == QueueEntry.State.RESOLVING ? " ⏳" : "";
+                eb.appendDescription("📍 **" + (startIndex + i + 1) + ".** " + entry.getDisplayTitle() + marker + "\n");
             }
         }
 
@@ -365,7 +577,7 @@ private static void handlePauseCommand(GuildMessageChannel messageChannel, Track
 
     private static String getHelpMessage() {
         return "**Spotibot Commands**:\n" +
-               "`!play <URL or search term>` - Play a YouTube video, playlist, or Spotify track/playlist.\n" +
+               "`!play <URL or search term>` - Play a YouTube video, playlist, or Spotify track, playlist, album or artist (several links at once work too).\n" +
                "`!np` / `!nowplaying` - Show what's currently playing.\n" +
                "`!pause` - Pause playback.\n" +
                "`!resume` - Resume playback.\n" +
@@ -373,6 +585,11 @@ private static void handlePauseCommand(GuildMessageChannel messageChannel, Track
                "`!skip` - Skip the current track.\n" +
                "`!stop` - Stop playback and reset the bot.\n" +
                "`!queue` - Show the current queue.\n" +
+               "`!remove <position>` - Remove a track from the queue.\n" +
+               "`!move <from> <to>` - Move a track to another position in the queue.\n" +
+               "`!shuffle` - Shuffle the queue.\n" +
+               "`!clear` - Clear the queue (the current track keeps playing).\n" +
+               "`!stats` - Show download worker and queue statistics.\n" +
                "`!help` - Show this list of commands.\n" +
                "`!blackjack` - Join a game of blackjack.\n" +
                "`!blackjack help` - Show blackjack commands.\n" +
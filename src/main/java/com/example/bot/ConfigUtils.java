@@ -8,6 +8,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class ConfigUtils {
     private static final Logger logger = LoggerFactory.getLogger(ConfigUtils.class);
@@ -19,6 +22,7 @@ public class ConfigUtils {
     public static final String CONFIG_FILE_PATH = CONFIG_FOLDER + "config.json";
     public static final String COOKIE_FILE_PATH = CONFIG_FOLDER + "cookies.txt";
     public static final String BASE_DOWNLOAD_FOLDER = CONFIG_FOLDER + "downloads/";
+    public static final String CACHE_FOLDER = BASE_DOWNLOAD_FOLDER + "cache/";
     public static final int QUEUE_PAGE_SIZE = 5;
 
     public static String BOT_TOKEN;
@@ -26,6 +30,30 @@ public class ConfigUtils {
     public static int defaultVolume = 60;
     public static String skipEmoji;
     public static String stopEmoji;
+    // Number of yt-dlp downloads that may run at the same time across all guilds
+    public static int downloadWorkers = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    // Size budget for the shared audio cache; least recently played files are evicted beyond this
+    public static long cacheMaxBytes = 2048L * 1024 * 1024;
+    // Persistent yt-dlp worker processes (0 = always spawn a fresh yt-dlp per track), recycled after maxJobs requests
+    public static int ytdlpWorkers = downloadWorkers;
+    public static int ytdlpWorkerMaxJobs = 50;
+    // Overrides the worker command (e.g. a stub script for testing); empty = bundled ytdlp_worker.py
+    public static List<String> ytdlpWorkerCommand = List.of();
+    // How many upcoming queue entries are downloaded ahead of time; the rest wait until they get close
+    public static int lookaheadTracks = 3;
+    // Start playing a track while yt-dlp is still downloading it, once this many bytes are on disk
+    public static boolean progressivePlayback = true;
+    public static long progressiveMinBytes = 256L * 1024;
+    // Playlist (bulk) downloads that have waited this long are served alongside single !play requests
+    public static long bulkAgingMs = 30_000;
+    // How long a search → video resolution in the track index is trusted before the search is run again
+    public static long trackIndexTtlMs = TimeUnit.DAYS.toMillis(30);
+    // How long an expanded YouTube playlist is replayed from the playlist cache before yt-dlp reads it again
+    public static long youtubePlaylistTtlMs = TimeUnit.HOURS.toMillis(12);
+    // A guild's player is destroyed after it has had nothing to play or download for this long
+    public static long playerIdleMs = TimeUnit.MINUTES.toMillis(10);
+    // Client-side cap on Spotify Web API calls across all guilds (bursts of up to twice this are allowed)
+    public static double spotifyRequestsPerSecond = 5;
 
     private static String ensureTrailingSlash(String path) {
         if (path == null || path.isEmpty()) return "./config/";
@@ -84,13 +112,34 @@ public class ConfigUtils {
             defaultVolume = config.path("default_volume").asInt(60);
             skipEmoji = config.path("emojis").path("skip").asText("⏩");
             stopEmoji = config.path("emojis").path("stop").asText("⏹️");
+            downloadWorkers = Math.max(1, config.path("download_workers").asInt(downloadWorkers));
+            cacheMaxBytes = Math.max(0, config.path("cache_max_mb").asLong(cacheMaxBytes / (1024 * 1024))) * 1024 * 1024;
+            ytdlpWorkers = Math.max(0, config.path("ytdlp_workers").asInt(downloadWorkers));
+            ytdlpWorkerMaxJobs = Math.max(1, config.path("ytdlp_worker_max_jobs").asInt(ytdlpWorkerMaxJobs));
+            JsonNode workerCommand = config.path("ytdlp_worker_command");
+            if (workerCommand.isArray()) {
+                List<String> parts = new ArrayList<>();
+                workerCommand.forEach(part -> parts.add(part.asText()));
+                ytdlpWorkerCommand = List.copyOf(parts);
+            } else if (workerCommand.isTextual() && !workerCommand.asText().isBlank()) {
+                ytdlpWorkerCommand = List.of(workerCommand.asText().trim().split("\\s+"));
+            }
+            lookaheadTracks = Math.max(1, config.path("lookahead_tracks").asInt(lookaheadTracks));
+            progressivePlayback = config.path("progressive_playback").asBoolean(progressivePlayback);
+            progressiveMinBytes = Math.max(16, config.path("progressive_min_kb").asLong(progressiveMinBytes / 1024)) * 1024;
+            bulkAgingMs = Math.max(0, config.path("bulk_aging_seconds").asLong(bulkAgingMs / 1000)) * 1000;
+            playerIdleMs = TimeUnit.MINUTES.toMillis(Math.max(1, config.path("player_idle_minutes").asLong(TimeUnit.MILLISECONDS.toMinutes(playerIdleMs))));
+            spotifyRequestsPerSecond = Math.max(0.1, config.path("spotify_requests_per_second").asDouble(spotifyRequestsPerSecond));
+            youtubePlaylistTtlMs = TimeUnit.MINUTES.toMillis(Math.max(0, config.path("youtube_playlist_ttl_minutes").asLong(TimeUnit.MILLISECONDS.toMinutes(youtubePlaylistTtlMs))));
+            trackIndexTtlMs = TimeUnit.DAYS.toMillis(Math.max(1, config.path("track_index_ttl_days").asLong(TimeUnit.MILLISECONDS.toDays(trackIndexTtlMs))));
 
             if (BOT_TOKEN == null || BOT_TOKEN.isBlank() || BOT_TOKEN.equals("YOUR_BOT_TOKEN_HERE")) {
                 logger.error("Bot token is missing in the config file.");
                 System.exit(1);
             }
 
-            logger.info("Loaded config successfully. Default volume set to: " + defaultVolume);
+            logger.info("Loaded config successfully. Default volume set to: " + defaultVolume
+                    + ", download workers: " + downloadWorkers);
         } catch (IOException e) {
             logger.error("Failed to load config file: " + e.getMessage(), e);
             System.exit(1);
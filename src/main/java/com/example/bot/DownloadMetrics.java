@@ -0,0 +1,82 @@
+package com.example.bot;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Download throughput counters shown in !stats, fed by yt-dlp's progress reports and finished downloads.
+ */
+public class DownloadMetrics {
+    // Weight of the newest speed sample in the moving average
+    private static final double SPEED_SMOOTHING = 0.2;
+
+    private static final AtomicLong completed = new AtomicLong();
+    private static final AtomicLong failed = new AtomicLong();
+    private static final AtomicLong bytes = new AtomicLong();
+    private static final AtomicLong millis = new AtomicLong();
+    private static final AtomicLong deadlineMisses = new AtomicLong();
+    private static final AtomicLong stalledMillis = new AtomicLong();
+    private static double recentBytesPerSecond = 0; // guarded by DownloadMetrics.class
+    private static double peakBytesPerSecond = 0;   // guarded by DownloadMetrics.class
+
+    public static synchronized void recordSpeed(double bytesPerSecond) {
+        if (bytesPerSecond <= 0) return;
+        recentBytesPerSecond = recentBytesPerSecond == 0
+                ? bytesPerSecond
+                : SPEED_SMOOTHING * bytesPerSecond + (1 - SPEED_SMOOTHING) * recentBytesPerSecond;
+        peakBytesPerSecond = Math.max(peakBytesPerSecond, bytesPerSecond);
+    }
+
+    public static void recordCompleted(long fileBytes, long elapsedMillis) {
+        completed.incrementAndGet();
+        bytes.addAndGet(fileBytes);
+        millis.addAndGet(elapsedMillis);
+    }
+
+    public static void recordFailed() {
+        failed.incrementAndGet();
+    }
+
+    // Playback reached a track that hadn't finished downloading and went silent
+    public static void recordDeadlineMiss() {
+        deadlineMisses.incrementAndGet();
+    }
+
+    // How long that silence lasted, once the track finally started
+    public static void recordStall(long elapsedMillis) {
+        stalledMillis.addAndGet(elapsedMillis);
+    }
+
+    public static long getDeadlineMisses() {
+        return deadlineMisses.get();
+    }
+
+    public static long getStalledMillis() {
+        return stalledMillis.get();
+    }
+
+    public static long getCompleted() {
+        return completed.get();
+    }
+
+    public static long getFailed() {
+        return failed.get();
+    }
+
+    public static long getTotalBytes() {
+        return bytes.get();
+    }
+
+    // Bytes per second over every finished download, including resolve time
+    public static double getAverageBytesPerSecond() {
+        long ms = millis.get();
+        return ms > 0 ? bytes.get() * 1000.0 / ms : 0;
+    }
+
+    public static synchronized double getRecentBytesPerSecond() {
+        return recentBytesPerSecond;
+    }
+
+    public static synchronized double getPeakBytesPerSecond() {
+        return peakBytesPerSecond;
+    }
+}
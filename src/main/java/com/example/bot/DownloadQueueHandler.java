@@ -2,129 +2,164 @@ package com.example.bot;
 
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
-import java.util.concurrent.BlockingQueue;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.concurrent.TimeUnit;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import org.json.JSONArray;
+import org.json.JSONObject;
 
 public class DownloadQueueHandler {
     private static final Logger logger = Logger.getLogger(DownloadQueueHandler.class.getName());
+    private static final Pattern PLAYLIST_ID = Pattern.compile("[?&]list=([A-Za-z0-9_-]+)");
 
-    public static void queueAndPlay(String input, TrackScheduler trackScheduler, GuildMessageChannel messageChannel, Guild guild, String serverFolder, BlockingQueue<Runnable> downloadQueue) {
+    public static void queueAndPlay(String input, TrackScheduler trackScheduler, GuildMessageChannel messageChannel, Guild guild, DownloadWorkerPool downloadPool) {
+        queueAndPlay(input, null, 0, trackScheduler, messageChannel, guild, downloadPool, null);
+    }
+
+    /**
+     * Queues one track. Tracks of a playlist import pass the import's {@link BulkImportStatus} so they report to
+     * its single embed instead of each sending their own status message, and the title and duration the playlist
+     * listed (null / 0 if unknown).
+     */
+    public static void queueAndPlay(String input, String title, long durationSeconds, TrackScheduler trackScheduler, GuildMessageChannel messageChannel, Guild guild, DownloadWorkerPool downloadPool, BulkImportStatus bulkImport) {
         if (input == null || input.isEmpty()) {
             messageChannel.sendMessage("Invalid track title.").queue();
             return;
         }
 
-        String displayTitle = input.replace("ytsearch:", "").trim();
+        // Searched before → the video, its title and length are known without spawning yt-dlp
+        TrackIndex.Entry indexed = TrackIndex.lookup(input);
+        String displayTitle = indexed != null && !indexed.title().isEmpty() ? indexed.title()
+                : title != null && !title.isBlank() ? title
+                : input.replace("ytsearch:", "").trim();
 
-        // Send "Searching…" immediately so the user gets instant feedback, then edit it to the final status.
-        messageChannel.sendMessage("🔍 Searching for `" + displayTitle + "`...").queue(searchMsg -> {
-            trackScheduler.incrementPendingDownloads();
-            downloadQueue.offer(() -> {
-                boolean delegatedToQueueSong = false;
-                long durationSeconds = 0;
-                try {
-                    String query = input.contains("youtube.com") || input.contains("youtu.be") ? input : "ytsearch:" + input;
-                    String sanitizedSongName = sanitizeFileName(input);
-                    String outputFilePath = serverFolder + sanitizedSongName + ".webm";
-
-                    File downloadedFile = new File(outputFilePath);
-                    if (!downloadedFile.exists()) {
-                        // Fetch duration + approx file size before downloading so we can show progress info
-                        long[] meta = fetchMetadata(query);
-                        if (meta != null) {
-                            durationSeconds = meta[0];
-                            long filesize = meta[1];
-                            StringBuilder dlMsg = new StringBuilder("⏳ Downloading `").append(displayTitle).append("`");
-                            if (durationSeconds > 0 || filesize > 0) {
-                                dlMsg.append("  —  ");
-                                if (durationSeconds > 0) dlMsg.append(formatDuration(durationSeconds));
-                                if (filesize > 0) {
-                                    if (durationSeconds > 0) dlMsg.append(", ");
-                                    dlMsg.append(formatFileSize(filesize));
-                                }
-                            }
-                            final String finalDlMsg = dlMsg.toString();
-                            searchMsg.editMessage(finalDlMsg).queue(null, e -> {});
-                        }
-                        downloadAndQueueSong(query, outputFilePath, trackScheduler, messageChannel, guild);
-                    }
-
-                    if (downloadedFile.exists()) {
-                        delegatedToQueueSong = true; // queueSong's load callbacks will decrement
-                        trackScheduler.queueSong(downloadedFile, input);
-                        String queuedMsg = String.format("📍 **Queued:** `%s`", displayTitle);
-                        if (durationSeconds > 0) queuedMsg += "  [" + formatDuration(durationSeconds) + "]";
-                        final String finalQueuedMsg = queuedMsg;
-                        searchMsg.editMessage(finalQueuedMsg)
-                                .queue(m -> m.suppressEmbeds(true).queue(), e -> {});
-                    } else {
-                        searchMsg.editMessage("❌ Failed to download: `" + displayTitle + "`")
-                                .queue(null, e -> {});
-                    }
-                } catch (IOException | InterruptedException e) {
-                    searchMsg.editMessage("❌ Error downloading `" + displayTitle + "`: " + e.getMessage())
-                            .queue(null, e2 -> {});
-                    logger.severe("Error processing track: " + input + " - " + e.getMessage());
-                } finally {
-                    if (!delegatedToQueueSong) {
-                        trackScheduler.decrementPendingDownloads();
-                    }
-                }
-            });
-        });
+        // Counted against the import now, so its total is every queued track rather than only those downloaded so far
+        TrackStatus importStatus = bulkImport != null ? bulkImport.track(displayTitle) : null;
+
+        // Only the next few entries are downloaded; this one resolves once it enters the scheduler's lookahead window
+        QueueEntry queueEntry = new QueueEntry(input, displayTitle,
+                entry -> resolve(entry, indexed, importStatus, trackScheduler, messageChannel, guild, downloadPool),
+                importStatus != null ? importStatus::delete : null);
+        if (indexed != null) queueEntry.setExpectedDurationMs(indexed.durationSeconds() * 1000);
+        else if (durationSeconds > 0) queueEntry.setExpectedDurationMs(durationSeconds * 1000);
+        trackScheduler.enqueue(queueEntry);
     }
 
-    /**
-     * Fetches duration (seconds) and approximate file size (bytes) from yt-dlp without downloading.
-     * Returns [durationSeconds, filesizeBytes], or null if the fetch fails or times out.
-     */
-    private static long[] fetchMetadata(String query) {
-        try {
-            ProcessBuilder pb = new ProcessBuilder(
-                    "yt-dlp",
-                    "--print", "duration",
-                    "--print", "filesize_approx",
-                    "--no-download",
-                    "--no-warnings",
-                    "--no-playlist",
-                    "-f", "bestaudio/best",
-                    query
-            );
-            pb.redirectErrorStream(false);
-            Process process = pb.start();
-            List<String> lines = new ArrayList<>();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    line = line.trim();
-                    if (!line.isBlank()) lines.add(line);
-                }
+    // Downloads a queue entry and hands the file to the scheduler
+    private static void resolve(QueueEntry entry, TrackIndex.Entry indexed, TrackStatus importStatus, TrackScheduler trackScheduler, GuildMessageChannel messageChannel, Guild guild, DownloadWorkerPool downloadPool) {
+        String input = entry.getQuery();
+        String displayTitle = entry.getDisplayTitle();
+
+        // The job is queued right away; the "Searching…" message is sent alongside it and catches up with later edits
+        TrackStatus status = importStatus != null
+                ? importStatus
+                : DownloadStatusMessage.send(messageChannel, displayTitle);
+        long guildId = guild.getIdLong();
+        DownloadWorkerPool.Lane lane = importStatus != null ? DownloadWorkerPool.Lane.BULK : DownloadWorkerPool.Lane.INTERACTIVE;
+        downloadPool.submit(guildId, lane, () -> {
+            if (entry.isCancelled()) {
+                status.delete();
+                return;
             }
-            boolean done = process.waitFor(15, TimeUnit.SECONDS);
-            if (!done) { process.destroyForcibly(); return null; }
 
-            long duration = 0, filesize = 0;
-            if (lines.size() >= 1 && !lines.get(0).equals("NA")) {
-                duration = (long) Double.parseDouble(lines.get(0));
+            // Known video (direct URL or a search we've resolved before) → try the shared cache without spawning yt-dlp
+            String urlVideoId = AudioCache.videoIdFromUrl(input);
+            String videoId = urlVideoId != null ? urlVideoId : indexed != null ? indexed.videoId() : null;
+            FileLeaseManager.Lease cached = videoId != null ? AudioCache.lookupAndLease(videoId) : null;
+            if (cached != null) {
+                trackScheduler.onResolved(entry, cached, false);
+                status.queued(indexed != null ? indexed.durationSeconds() : 0);
+                return;
             }
-            if (lines.size() >= 2 && !lines.get(1).equals("NA")) {
-                filesize = Long.parseLong(lines.get(1));
+
+            // Identical requests already in flight (from any server) share one download
+            SharedDownload.Join join = SharedDownload.join(input, videoId, entryListener(guildId, entry, trackScheduler, status));
+            if (!join.leader()) return;
+
+            SharedDownload run = join.run();
+            // Other guilds may be waiting on this download too, so a !stop here only detaches this guild
+            DownloadWorkerPool.onCancel(() -> run.detachGuild(guildId));
+            String error = null;
+            try {
+                // A search we've resolved before goes straight to the video instead of searching again
+                String query = input.contains("youtube.com") || input.contains("youtu.be") ? input
+                        : videoId != null ? "https://www.youtube.com/watch?v=" + videoId
+                        : "ytsearch:" + input;
+                download(query, run);
+            } catch (IOException | InterruptedException e) {
+                error = e.getMessage();
+                if (run.mergedInto == null && !run.abandoned) logger.severe("Error processing track: " + input + " - " + error);
+            } finally {
+                if (run.mergedInto == null) run.finish(error);
             }
-            return new long[]{duration, filesize};
-        } catch (Exception e) {
-            logger.warning("Metadata fetch failed (non-fatal): " + e.getMessage());
-            return null;
-        }
+        }, status::delete, () -> trackScheduler.playbackDeadline(entry));
+    }
+
+    // Turns a shared download's events into status edits and scheduler hand-offs for one queue entry
+    private static SharedDownload.Listener entryListener(long guildId, QueueEntry entry, TrackScheduler trackScheduler, TrackStatus status) {
+        String displayTitle = entry.getDisplayTitle();
+        return new SharedDownload.Listener() {
+            private volatile boolean queuedEarly = false;
+
+            @Override
+            public long guildId() {
+                return guildId;
+            }
+
+            @Override
+            public void onCancelled() {
+                status.delete();
+            }
+
+            @Override
+            public void onDownloading(YtDlpOutput.TrackInfo info) {
+                entry.setExpectedDurationMs(info.durationSeconds() * 1000);
+                status.downloading(info);
+            }
+
+            @Override
+            public void onProgress(YtDlpOutput.Progress progress) {
+                status.progress(progress);
+            }
+
+            // Progressive mode: queue the track as soon as the first bytes land, keep downloading behind it
+            @Override
+            public void onPlayable(File file, YtDlpOutput.TrackInfo info) {
+                queuedEarly = true;
+                // The run holds a lease on the file throughout, so it can't be evicted before the entry takes its own
+                trackScheduler.onResolved(entry, FileLeaseManager.acquire(file), true);
+                status.streaming(info.durationSeconds());
+            }
+
+            @Override
+            public void onFinished(File file, YtDlpOutput.TrackInfo info, String error) {
+                long durationSeconds = info != null ? info.durationSeconds() : 0;
+                if (queuedEarly) {
+                    // Already queued by onPlayable; only the final outcome of the download is left to report
+                    if (file != null) status.queued(durationSeconds);
+                    else status.failed("❌ Download of `" + displayTitle + "` failed partway through.");
+                } else if (file != null) {
+                    trackScheduler.onResolved(entry, FileLeaseManager.acquire(file), false);
+                    status.queued(durationSeconds);
+                } else {
+                    status.failed(error != null
+                            ? "❌ Error downloading `" + displayTitle + "`: " + error
+                            : "❌ Failed to download: `" + displayTitle + "`");
+                    trackScheduler.onResolveFailed(entry);
+                }
+            }
+        };
     }
 
-    private static String formatDuration(long totalSeconds) {
+    static String formatDuration(long totalSeconds) {
         long h = totalSeconds / 3600;
         long m = (totalSeconds % 3600) / 60;
         long s = totalSeconds % 60;
@@ -132,57 +167,73 @@ public class DownloadQueueHandler {
         return String.format("%d:%02d", m, s);
     }
 
-    private static String formatFileSize(long bytes) {
+    static String formatFileSize(long bytes) {
         if (bytes >= 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
         return String.format("%d KB", bytes / 1024);
     }
 
     /**
-     * Uses yt-dlp --flat-playlist to fetch all video URLs from a YouTube playlist without downloading audio.
-     * Fast operation (~1-5s depending on playlist size).
+     * Streams a YouTube playlist's entries with yt-dlp --flat-playlist (no audio is downloaded). Each entry is
+     * handed to onEntry, on a background thread and in playlist order, as soon as yt-dlp prints it, so the first
+     * tracks can be queued while the rest of a long playlist is still being read. Nothing is buffered here.
+     * Entries stop being delivered once the calling pool job is cancelled.
+     *
+     * @return the number of entries delivered
      */
-    public static List<String> getYouTubePlaylistUrls(String playlistUrl) throws IOException, InterruptedException {
-        List<String> urls = new ArrayList<>();
-        ProcessBuilder pb = new ProcessBuilder(
+    public static int expandYouTubePlaylist(String playlistUrl, Consumer<YtDlpOutput.PlaylistEntry> onEntry) throws IOException, InterruptedException {
+        CancellationToken token = DownloadWorkerPool.currentToken();
+
+        // Expanded recently → replay the stored entries without starting yt-dlp
+        String key = PlaylistCache.youtubeKey(youTubePlaylistId(playlistUrl));
+        List<PlaylistCache.Item> cached = PlaylistCache.getFresh(key, ConfigUtils.youtubePlaylistTtlMs);
+        if (cached != null) {
+            logger.info("Using " + cached.size() + " cached entries for " + playlistUrl);
+            int delivered = 0;
+            for (PlaylistCache.Item item : cached) {
+                if (token.isCancelled()) break;
+                onEntry.accept(new YtDlpOutput.PlaylistEntry(item.input(), item.title(), item.durationSeconds(), cached.size()));
+                delivered++;
+            }
+            return delivered;
+        }
+
+        List<PlaylistCache.Item> items = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger delivered = new AtomicInteger();
+        ProcessRunner.Handle process = ProcessRunner.start("yt-dlp-playlist", List.of(
                 "yt-dlp",
                 "--flat-playlist",
-                "--print", "webpage_url",
+                "--print", YtDlpOutput.PLAYLIST_ENTRY_TEMPLATE,
                 "--no-warnings",
                 playlistUrl
-        );
-        pb.redirectErrorStream(false);
-        Process process = pb.start();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isBlank()) urls.add(line);
-            }
+        ), TimeUnit.SECONDS.toMillis(60), line -> {
+            YtDlpOutput.PlaylistEntry entry = YtDlpOutput.parsePlaylistEntry(line);
+            if (entry == null || token.isCancelled()) return;
+            items.add(new PlaylistCache.Item(entry.url(), entry.title(), entry.durationSeconds()));
+            onEntry.accept(entry);
+            delivered.incrementAndGet();
+        }, logger::warning);
+        int exit = process.waitFor();
+        if (process.timedOut()) {
+            logger.warning("Playlist enumeration timed out after " + delivered.get() + " entries.");
+        } else if (exit == 0 && !token.isCancelled() && !items.isEmpty()) {
+            // Only a complete expansion is worth replaying
+            PlaylistCache.put(key, null, items);
         }
-        boolean done = process.waitFor(60, TimeUnit.SECONDS);
-        if (!done) process.destroyForcibly();
-        return urls;
+        return delivered.get();
     }
 
-    public static void clearDownloadsFolder(String serverFolder) {
-        File downloadFolder = new File(serverFolder);
-        if (downloadFolder.exists() && downloadFolder.isDirectory()) {
-            for (File file : downloadFolder.listFiles()) {
-                if (file.isFile()) {
-                    file.delete();
-                }
-            }
-        }
+    // The list= parameter of a playlist URL, or the whole URL if it has none
+    private static String youTubePlaylistId(String playlistUrl) {
+        Matcher m = PLAYLIST_ID.matcher(playlistUrl);
+        return m.find() ? m.group(1) : playlistUrl.trim();
     }
 
-    private static void downloadAndQueueSong(
-            String query,
-            String outputFilePath,
-            TrackScheduler trackScheduler,
-            GuildMessageChannel messageChannel,
-            Guild guild
-    ) throws IOException, InterruptedException {
-
+    /**
+     * Resolves and downloads one track in a single yt-dlp run straight into the shared cache, feeding the track
+     * info and progress to the run as they arrive. Progressive runs become playable once enough of the file is
+     * on disk, while the rest keeps downloading.
+     */
+    private static void download(String query, SharedDownload run) throws IOException, InterruptedException {
         // Resolve cookie path (exporter writes to /app/config/cookies.txt)
         String cookiePathToUse = null;
 
@@ -209,62 +260,117 @@ public class DownloadQueueHandler {
             logger.warning("Failed to validate/copy cookies file; continuing without cookies. " + e.getMessage());
         }
 
-        ProcessBuilder downloadBuilder;
-
-        if (cookiePathToUse != null) {
-            downloadBuilder = new ProcessBuilder(
-                    "yt-dlp",
-                    "-4",
-                    "--js-runtimes", "deno",
-                    "-f", "bestaudio/best",
-                    "--no-playlist",
-                    "--cookies", cookiePathToUse,
-                    "-o", outputFilePath,
-                    query
-            );
-        } else {
-            downloadBuilder = new ProcessBuilder(
-                    "yt-dlp",
-                    "-4",
-                    "--js-runtimes", "deno",
-                    "-f", "bestaudio/best",
-                    "--no-playlist",
-                    "-o", outputFilePath,
-                    query
-            );
+        String format = run.progressiveMode ? "bestaudio[ext=webm]/bestaudio/best" : "bestaudio/best";
+        String outputTemplate = new File(ConfigUtils.CACHE_FOLDER, "%(id)s.webm").getPath();
+
+        try {
+            Boolean workerResult = null;
+            if (YtDlpWorkerPool.isEnabled()) {
+                try {
+                    workerResult = downloadWithWorker(query, outputTemplate, format, cookiePathToUse, run);
+                } catch (YtDlpWorkerPool.WorkerUnavailableException e) {
+                    if (run.mergedInto != null) return; // we killed it on purpose
+                    if (run.info != null) throw e; // already writing the file; can't restart underneath it
+                    logger.info("yt-dlp worker unavailable, using one-shot download: " + e.getMessage());
+                }
+            }
+            boolean ok = workerResult != null
+                    ? workerResult
+                    : downloadWithProcess(query, outputTemplate, format, cookiePathToUse, run);
+            run.succeeded = ok && run.mergedInto == null && run.outputFile() != null && run.outputFile().exists();
+        } finally {
+            if (run.progressive != null) run.progressive.finish(run.succeeded);
+        }
+
+        if (run.cachedFile == null && run.mergedInto == null && !run.abandoned) {
+            if (run.succeeded) {
+                AudioCache.commit(run.info.videoId());
+                YtDlpOutput.TrackInfo info = run.info;
+                TrackIndex.record(run.input, new YtDlpOutput.TrackInfo(info.videoId(), info.title(),
+                        info.durationSeconds(), run.outputFile().length()));
+                DownloadMetrics.recordCompleted(run.outputFile().length(), System.currentTimeMillis() - run.startedAt);
+            } else {
+                DownloadMetrics.recordFailed();
+            }
         }
+    }
 
-        downloadBuilder.redirectErrorStream(true);
-        logger.info("Running: " + String.join(" ", downloadBuilder.command()));
+    // Downloads through a persistent yt-dlp worker. Returns false on failure or timeout.
+    private static boolean downloadWithWorker(String query, String outputTemplate, String format, String cookiePath,
+                                              SharedDownload run)
+            throws YtDlpWorkerPool.WorkerUnavailableException, InterruptedException {
+        JSONObject request = new JSONObject()
+                .put("op", "download")
+                .put("query", query)
+                .put("output", outputTemplate)
+                .put("format", format)
+                .put("no_part", run.progressiveMode)
+                .put("js_runtimes", new JSONArray().put("deno"));
+        if (cookiePath != null) request.put("cookies", cookiePath);
+        logger.info("Sending to yt-dlp worker: " + request);
 
-        Process downloadProcess = downloadBuilder.start();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(downloadProcess.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                logger.info(line);
+        YtDlpWorkerPool.Result result = YtDlpWorkerPool.request(request, event -> {
+            switch (event.optString("event")) {
+                case "info" -> run.onInfo(YtDlpOutput.infoFromWorker(event));
+                case "progress" -> run.onProgress(YtDlpOutput.progressFromWorker(event));
+                default -> { }
             }
+        }, TimeUnit.SECONDS.toMillis(180));
+
+        if (result.timedOut()) {
+            logger.severe("Download timed out in yt-dlp worker for query: " + query);
+        } else if (!result.ok()) {
+            logger.warning("yt-dlp worker failed for query: " + query + " - " + result.error());
         }
+        return result.ok();
+    }
 
-        boolean completedInTime = downloadProcess.waitFor(180, TimeUnit.SECONDS);
-        if (!completedInTime) {
-            downloadProcess.destroyForcibly();
-            logger.severe("Download process timed out for query: " + query);
-            messageChannel.sendMessage("Failed to download song (timeout): " + query)
-                    .queue(msg -> msg.suppressEmbeds(true).queue());
-            return;
+    // Downloads with a one-shot yt-dlp process. Returns false on failure or timeout.
+    private static boolean downloadWithProcess(String query, String outputTemplate, String format, String cookiePath,
+                                               SharedDownload run)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(
+                "yt-dlp",
+                "-4",
+                "--js-runtimes", "deno",
+                "--no-playlist",
+                "-f", format,
+                // Resolve and download in one run: print the track info before downloading, then one progress line per update
+                "--no-simulate",
+                "--print", "before_dl:" + YtDlpOutput.INFO_TEMPLATE,
+                "--progress", "--newline",
+                "--progress-template", "download:" + YtDlpOutput.PROGRESS_TEMPLATE
+        ));
+        if (run.progressiveMode) {
+            // Write straight to the output file (no .part rename) so lavaplayer can read it while it grows
+            command.add("--no-part");
+        }
+        if (cookiePath != null) {
+            command.addAll(List.of("--cookies", cookiePath));
         }
+        command.addAll(List.of("-o", outputTemplate, query));
 
-        int exit = downloadProcess.exitValue();
-        logger.info("yt-dlp exit code: " + exit);
+        logger.info("Running: " + String.join(" ", command));
+
+        // Output is parsed on a side thread, so the deadline fires even if yt-dlp stops printing
+        ProcessRunner.Handle download = ProcessRunner.start("yt-dlp", command, TimeUnit.SECONDS.toMillis(180), line -> {
+            YtDlpOutput.Progress progress = YtDlpOutput.parseProgress(line);
+            if (progress != null) {
+                run.onProgress(progress);
+                return;
+            }
+            YtDlpOutput.TrackInfo info = YtDlpOutput.parseInfo(line);
+            if (info != null) run.onInfo(info);
+            logger.info(line);
+        }, logger::info);
 
-        File downloadedFile = new File(outputFilePath);
-        if (exit != 0 || !downloadedFile.exists()) {
-            messageChannel.sendMessage("Failed to download song: " + query)
-                    .queue(msg -> msg.suppressEmbeds(true).queue());
+        int exit = download.waitFor();
+        if (download.timedOut()) {
+            logger.severe("Download process timed out for query: " + query);
+            return false;
         }
+        logger.info("yt-dlp exit code: " + exit);
+        return exit == 0;
     }
 
-    private static String sanitizeFileName(String input) {
-        return input.replaceAll("[^a-zA-Z0-9_-]", "_");
-    }
 }
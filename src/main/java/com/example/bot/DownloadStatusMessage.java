@@ -0,0 +1,142 @@
+package com.example.bot;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The "🔍 Searching…" message for one track, edited as the track resolves and downloads. The message is sent
+ * asynchronously so the download never waits on Discord: edits made before it exists are held back and the
+ * latest one is applied once it arrives, and if it can't be sent at all the edits are simply dropped.
+ * Progress edits are throttled to one every few seconds so a fast download doesn't trip Discord's rate limit;
+ * state changes (downloading, streaming, queued, failed) are always sent.
+ */
+public class DownloadStatusMessage implements TrackStatus {
+    private static final Logger logger = LoggerFactory.getLogger(DownloadStatusMessage.class);
+
+    private static final long PROGRESS_EDIT_INTERVAL_MS = 3000;
+    private static final int BAR_WIDTH = 12;
+
+    private final String displayTitle;
+    private Message message;        // null until Discord confirms the send
+    private boolean sendFailed = false;
+    private String pendingText;     // latest edit made before the message existed
+    private boolean pendingSuppressEmbeds = false;
+    private boolean deleteRequested = false;
+    private String header;          // current state line; the progress bar goes underneath
+    private long lastEditAt = 0;
+    private boolean closed = false;
+
+    private DownloadStatusMessage(String displayTitle) {
+        this.displayTitle = displayTitle;
+    }
+
+    // Starts sending the "Searching…" message and returns right away
+    public static DownloadStatusMessage send(GuildMessageChannel channel, String displayTitle) {
+        DownloadStatusMessage status = new DownloadStatusMessage(displayTitle);
+        channel.sendMessage("🔍 Searching for `" + displayTitle + "`...").queue(status::onSent, status::onSendFailed);
+        return status;
+    }
+
+    private synchronized void onSent(Message sent) {
+        message = sent;
+        if (deleteRequested) {
+            message.delete().queue(null, e -> {});
+        } else if (pendingText != null) {
+            edit(pendingText, pendingSuppressEmbeds);
+            pendingText = null;
+        }
+    }
+
+    private synchronized void onSendFailed(Throwable error) {
+        sendFailed = true;
+        pendingText = null;
+        logger.warn("Couldn't send status message for '{}' (download continues): {}", displayTitle, error.getMessage());
+    }
+
+    @Override
+    public synchronized void downloading(YtDlpOutput.TrackInfo info) {
+        StringBuilder text = new StringBuilder("⏳ Downloading `").append(displayTitle).append("`");
+        if (info.durationSeconds() > 0 || info.filesizeBytes() > 0) {
+            text.append("  —  ");
+            if (info.durationSeconds() > 0) text.append(DownloadQueueHandler.formatDuration(info.durationSeconds()));
+            if (info.filesizeBytes() > 0) {
+                if (info.durationSeconds() > 0) text.append(", ");
+                text.append(DownloadQueueHandler.formatFileSize(info.filesizeBytes()));
+            }
+        }
+        header = text.toString();
+        edit(header, false);
+    }
+
+    // Progress keeps showing under the queued line
+    @Override
+    public synchronized void streaming(long durationSeconds) {
+        header = queuedLine(durationSeconds) + "  ·  streaming";
+        edit(header, true);
+    }
+
+    @Override
+    public synchronized void progress(YtDlpOutput.Progress progress) {
+        if (closed || header == null) return;
+        long now = System.currentTimeMillis();
+        if (now - lastEditAt < PROGRESS_EDIT_INTERVAL_MS) return;
+        edit(header + "\n" + progressLine(progress), header.startsWith("📍"));
+    }
+
+    @Override
+    public synchronized void queued(long durationSeconds) {
+        closed = true;
+        edit(queuedLine(durationSeconds), true);
+    }
+
+    @Override
+    public synchronized void failed(String text) {
+        closed = true;
+        edit(text, false);
+    }
+
+    @Override
+    public synchronized void delete() {
+        closed = true;
+        deleteRequested = true;
+        if (message != null) message.delete().queue(null, e -> {});
+    }
+
+    private String queuedLine(long durationSeconds) {
+        String line = String.format("📍 **Queued:** `%s`", displayTitle);
+        if (durationSeconds > 0) line += "  [" + DownloadQueueHandler.formatDuration(durationSeconds) + "]";
+        return line;
+    }
+
+    static String progressLine(YtDlpOutput.Progress progress) {
+        StringBuilder line = new StringBuilder("`");
+        double fraction = progress.fraction();
+        if (fraction >= 0) {
+            int filled = (int) Math.round(fraction * BAR_WIDTH);
+            line.append("█".repeat(filled)).append("░".repeat(BAR_WIDTH - filled))
+                    .append(String.format("` %d%%", Math.round(fraction * 100)));
+        } else {
+            line.append(DownloadQueueHandler.formatFileSize(progress.downloadedBytes())).append("`");
+        }
+        if (progress.bytesPerSecond() > 0) {
+            line.append("  ·  ").append(DownloadQueueHandler.formatFileSize((long) progress.bytesPerSecond())).append("/s");
+        }
+        if (progress.etaSeconds() > 0) {
+            line.append("  ·  ETA ").append(DownloadQueueHandler.formatDuration(progress.etaSeconds()));
+        }
+        return line.toString();
+    }
+
+    private void edit(String text, boolean suppressEmbeds) {
+        lastEditAt = System.currentTimeMillis();
+        if (sendFailed) return;
+        if (message == null) {
+            pendingText = text;
+            pendingSuppressEmbeds = suppressEmbeds;
+            return;
+        }
+        message.editMessage(text).queue(suppressEmbeds ? m -> m.suppressEmbeds(true).queue() : null, e -> {});
+    }
+}
@@ -0,0 +1,385 @@
+package com.example.bot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded pool of download workers fed from per-guild sub-queues.
+ * Jobs are split into two lanes: interactive (a single !play) always starts before bulk
+ * (playlist imports), so a user's request never sits behind hundreds of backfill jobs.
+ * Bulk jobs are promoted once they have waited {@link ConfigUtils#bulkAgingMs} or their
+ * track is about to play, so imports keep moving. Within a lane jobs that know when their
+ * track will be played are served earliest-deadline-first across all guilds, and jobs
+ * without a deadline round-robin between guilds. Running jobs are never preempted.
+ */
+public class DownloadWorkerPool {
+    private static final Logger logger = LoggerFactory.getLogger(DownloadWorkerPool.class);
+
+    private final int workerCount;
+    private final Object lock = new Object();
+
+    // All of the below are guarded by lock
+    private final Map<Long, GuildQueue> guildQueues = new HashMap<>();
+    private final Deque<GuildQueue> readyGuilds = new ArrayDeque<>(); // round-robin ring of guilds with queued jobs
+    private long deadlineDispatches = 0;
+    private long promotedDispatches = 0;
+    private final long[] laneDispatched = new long[Lane.values().length];
+    private final long[] laneWaitMs = new long[Lane.values().length];
+    private final long[] laneMaxWaitMs = new long[Lane.values().length];
+    private int busyWorkers = 0;
+
+    private volatile long deadlinesRefreshedAt = 0;
+
+    private static final ThreadLocal<RunningJob> currentJob = new ThreadLocal<>();
+
+    // Priority class of a job; every interactive job starts before any bulk job that hasn't been promoted
+    public enum Lane { INTERACTIVE, BULK }
+
+    // A bulk job whose track plays within this long is served as interactive
+    private static final long URGENT_DEADLINE_MS = 60_000;
+
+    // How often queued jobs' deadlines are re-read; they only move when a queue is skipped or reordered
+    private static final long DEADLINE_REFRESH_MS = 1000;
+
+    /**
+     * onDropped runs instead of work if the guild is cancelled before the job starts (may be null).
+     * deadlineSource gives the epoch millis by which the job's result is needed, Long.MAX_VALUE for "no
+     * deadline". Reading it walks the guild's queue, so it is never called under lock: deadline holds the last
+     * value, read at submit and refreshed by {@link #refreshDeadlines}.
+     */
+    private static final class Job {
+        final Runnable work;
+        final Runnable onDropped;
+        final LongSupplier deadlineSource;
+        final Lane lane;
+        final long submittedAt;
+        volatile long deadline;
+
+        Job(Runnable work, Runnable onDropped, LongSupplier deadlineSource, Lane lane, long submittedAt) {
+            this.work = work;
+            this.onDropped = onDropped;
+            this.deadlineSource = deadlineSource;
+            this.lane = lane;
+            this.submittedAt = submittedAt;
+            this.deadline = readDeadline(deadlineSource);
+        }
+    }
+
+    private static final LongSupplier NO_DEADLINE = () -> Long.MAX_VALUE;
+
+    // Per-guild bookkeeping; lives as long as the guild has ever submitted work
+    private static final class GuildQueue {
+        final long guildId;
+        final Deque<Job> pending = new ArrayDeque<>();
+        CancellationToken token = new CancellationToken(); // replaced on every cancelGuild
+        int running = 0;
+        long completed = 0;
+        long failed = 0;
+
+        GuildQueue(long guildId) {
+            this.guildId = guildId;
+        }
+    }
+
+    // A job on a worker thread; by default cancelling it interrupts the thread and kills the processes it started
+    private static final class RunningJob {
+        final Thread thread;
+        final CancellationToken token;
+        private Runnable cancelHandler; // guarded by this
+        private boolean done = false;   // guarded by this
+
+        RunningJob(Thread thread, CancellationToken token) {
+            this.thread = thread;
+            this.token = token;
+        }
+
+        synchronized void cancel() {
+            if (done) return;
+            if (cancelHandler != null) {
+                cancelHandler.run();
+                return;
+            }
+            thread.interrupt();
+            ProcessRunner.killOwnedBy(thread);
+        }
+
+        // After this returns cancel() can no longer interrupt the thread, so the next job starts clean
+        synchronized void finish() {
+            done = true;
+        }
+    }
+
+    // Point-in-time view of one guild's download activity
+    public record GuildStats(long guildId, int queued, int running, long completed, long failed) {}
+
+    // Queue wait of the jobs started so far in one lane, from submit to dispatch
+    public record LaneStats(Lane lane, int queued, long dispatched, long averageWaitMs, long maxWaitMs) {}
+
+    public DownloadWorkerPool(int workerCount) {
+        this.workerCount = Math.max(1, workerCount);
+        for (int i = 0; i < this.workerCount; i++) {
+            Thread t = new Thread(this::workerLoop, "download-worker-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        logger.info("Started {} download worker(s).", this.workerCount);
+    }
+
+    // Queues a download job; onDropped runs instead if the guild's downloads are cancelled before it starts
+    public void submit(long guildId, Lane lane, Runnable job, Runnable onDropped) {
+        submit(guildId, lane, job, onDropped, NO_DEADLINE);
+    }
+
+    /**
+     * Queues a download job that is needed by a point in time (see {@link TrackScheduler#playbackDeadline}).
+     * Of all queued jobs in the highest lane, the one with the earliest deadline starts first.
+     */
+    public void submit(long guildId, Lane lane, Runnable job, Runnable onDropped, LongSupplier deadline) {
+        Job queued = new Job(job, onDropped, deadline, lane, System.currentTimeMillis());
+        synchronized (lock) {
+            GuildQueue gq = guildQueues.computeIfAbsent(guildId, GuildQueue::new);
+            boolean wasIdle = gq.pending.isEmpty();
+            gq.pending.addLast(queued);
+            if (wasIdle) readyGuilds.addLast(gq);
+            lock.notify();
+        }
+    }
+
+    /**
+     * Cancels one guild's downloads: its queued jobs are dropped and its running jobs are cancelled through the
+     * guild's token. Other guilds' work is untouched.
+     *
+     * @return the number of queued jobs that were dropped
+     */
+    public int cancelGuild(long guildId) {
+        List<Job> dropped;
+        CancellationToken token;
+        synchronized (lock) {
+            GuildQueue gq = guildQueues.get(guildId);
+            if (gq == null) return 0;
+            dropped = new ArrayList<>(gq.pending);
+            gq.pending.clear();
+            readyGuilds.remove(gq);
+            token = gq.token;
+            gq.token = new CancellationToken();
+        }
+        for (Job job : dropped) {
+            if (job.onDropped != null) job.onDropped.run();
+        }
+        token.cancel();
+        logger.info("Cancelled downloads for guild {}: dropped {} queued job(s).", guildId, dropped.size());
+        return dropped.size();
+    }
+
+    /**
+     * Replaces what happens to the calling job when its guild is cancelled (by default the thread is interrupted
+     * and its processes are killed). No-op outside a pool job.
+     */
+    public static void onCancel(Runnable handler) {
+        RunningJob job = currentJob.get();
+        if (job == null) return;
+        synchronized (job) {
+            job.cancelHandler = handler;
+        }
+    }
+
+    // The calling job's cancellation token, for work that outlives the job's thread (e.g. output callbacks)
+    public static CancellationToken currentToken() {
+        RunningJob job = currentJob.get();
+        return job != null ? job.token : new CancellationToken();
+    }
+
+    private void workerLoop() {
+        while (true) {
+            Job job;
+            GuildQueue gq;
+            CancellationToken token;
+            refreshDeadlines();
+            synchronized (lock) {
+                while (readyGuilds.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // A stale cancel aimed at the previous job — keep serving
+                    }
+                }
+                Picked picked = takeNext();
+                job = picked.job();
+                gq = picked.guild();
+                token = gq.token;
+                gq.running++;
+                busyWorkers++;
+            }
+
+            Thread self = Thread.currentThread();
+            RunningJob running = new RunningJob(self, token);
+            currentJob.set(running);
+            Runnable unregister = token.onCancel(running::cancel);
+            boolean ok = false;
+            try {
+                job.work.run();
+                ok = true;
+            } catch (Throwable t) {
+                logger.error("Error processing download task for guild {}", gq.guildId, t);
+            } finally {
+                unregister.run();
+                running.finish();
+                currentJob.remove();
+                Thread.interrupted(); // don't leak a cancel into the next job
+                synchronized (lock) {
+                    gq.running--;
+                    busyWorkers--;
+                    if (ok) gq.completed++;
+                    else gq.failed++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-reads the deadline of every queued job, outside lock, at most once per {@link #DEADLINE_REFRESH_MS}
+     * across all workers. Jobs submitted since read theirs at submit.
+     */
+    private void refreshDeadlines() {
+        long now = System.currentTimeMillis();
+        if (now - deadlinesRefreshedAt < DEADLINE_REFRESH_MS) return;
+        deadlinesRefreshedAt = now;
+        List<Job> queued = new ArrayList<>();
+        synchronized (lock) {
+            for (GuildQueue gq : readyGuilds) queued.addAll(gq.pending);
+        }
+        for (Job job : queued) job.deadline = readDeadline(job.deadlineSource);
+    }
+
+    private record Picked(Job job, GuildQueue guild) {}
+
+    /**
+     * Removes and returns the next job: the highest effective lane first, then the earliest deadline across
+     * every guild; ties (including "no deadline") go to the guild nearest the front of the round-robin ring,
+     * which then moves to the back. Deadlines are the values cached on the jobs. Caller holds lock and has
+     * checked readyGuilds is non-empty.
+     */
+    private Picked takeNext() {
+        long now = System.currentTimeMillis();
+        GuildQueue bestGuild = null;
+        Job best = null;
+        Lane bestLane = null;
+        long bestDeadline = Long.MAX_VALUE;
+        for (GuildQueue gq : readyGuilds) {
+            for (Job job : gq.pending) {
+                long deadline = job.deadline;
+                Lane lane = effectiveLane(job, deadline, now);
+                if (best == null || lane.ordinal() < bestLane.ordinal()
+                        || (lane == bestLane && deadline < bestDeadline)) {
+                    bestGuild = gq;
+                    best = job;
+                    bestLane = lane;
+                    bestDeadline = deadline;
+                }
+            }
+        }
+        bestGuild.pending.remove(best);
+        readyGuilds.remove(bestGuild);
+        if (!bestGuild.pending.isEmpty()) readyGuilds.addLast(bestGuild); // back of the ring: next guild goes first
+
+        if (bestDeadline != Long.MAX_VALUE) deadlineDispatches++;
+        if (bestLane != best.lane) promotedDispatches++;
+        int lane = best.lane.ordinal();
+        long waited = now - best.submittedAt;
+        laneDispatched[lane]++;
+        laneWaitMs[lane] += waited;
+        laneMaxWaitMs[lane] = Math.max(laneMaxWaitMs[lane], waited);
+        return new Picked(best, bestGuild);
+    }
+
+    // Bulk jobs age into the interactive lane, or jump there when their track is about to play
+    private static Lane effectiveLane(Job job, long deadline, long now) {
+        if (job.lane == Lane.INTERACTIVE) return Lane.INTERACTIVE;
+        if (now - job.submittedAt >= ConfigUtils.bulkAgingMs) return Lane.INTERACTIVE;
+        if (deadline != Long.MAX_VALUE && deadline - now <= URGENT_DEADLINE_MS) return Lane.INTERACTIVE;
+        return job.lane;
+    }
+
+    private static long readDeadline(LongSupplier deadlineSource) {
+        try {
+            return deadlineSource.getAsLong();
+        } catch (RuntimeException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public int getBusyWorkers() {
+        synchronized (lock) {
+            return busyWorkers;
+        }
+    }
+
+    // Jobs that were started because they had the earliest playback deadline
+    public long getDeadlineDispatches() {
+        synchronized (lock) {
+            return deadlineDispatches;
+        }
+    }
+
+    // Bulk jobs that were started ahead of their lane because they had aged or their track was about to play
+    public long getPromotedDispatches() {
+        synchronized (lock) {
+            return promotedDispatches;
+        }
+    }
+
+    public LaneStats getLaneStats(Lane lane) {
+        synchronized (lock) {
+            int queued = 0;
+            for (GuildQueue gq : guildQueues.values()) {
+                for (Job job : gq.pending) {
+                    if (job.lane == lane) queued++;
+                }
+            }
+            int i = lane.ordinal();
+            long average = laneDispatched[i] > 0 ? laneWaitMs[i] / laneDispatched[i] : 0;
+            return new LaneStats(lane, queued, laneDispatched[i], average, laneMaxWaitMs[i]);
+        }
+    }
+
+    public int getQueuedJobs() {
+        synchronized (lock) {
+            int total = 0;
+            for (GuildQueue gq : guildQueues.values()) total += gq.pending.size();
+            return total;
+        }
+    }
+
+    // Returns stats for one guild (all zeros if it never submitted anything)
+    public GuildStats getGuildStats(long guildId) {
+        synchronized (lock) {
+            GuildQueue gq = guildQueues.get(guildId);
+            if (gq == null) return new GuildStats(guildId, 0, 0, 0, 0);
+            return new GuildStats(guildId, gq.pending.size(), gq.running, gq.completed, gq.failed);
+        }
+    }
+
+    // Returns stats for every guild that currently has queued or running jobs
+    public List<GuildStats> getActiveGuildStats() {
+        List<GuildStats> stats = new ArrayList<>();
+        synchronized (lock) {
+            for (GuildQueue gq : guildQueues.values()) {
+                if (gq.pending.isEmpty() && gq.running == 0) continue;
+                stats.add(new GuildStats(gq.guildId, gq.pending.size(), gq.running, gq.completed, gq.failed));
+            }
+        }
+        return stats;
+    }
+}
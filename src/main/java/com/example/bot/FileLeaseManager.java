@@ -0,0 +1,110 @@
+package com.example.bot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reference counts on audio files. Every queue entry that has a file holds a lease on it from the moment it is
+ * resolved until it has played or left the queue, so the same file queued twice — in one guild or several —
+ * stays on disk until the last entry is done with it. Leases are taken where the file is found, leaving no gap
+ * for eviction: a cache hit is leased under the cache lock ({@link AudioCache#lookupAndLease}), and a download
+ * holds one on its file until every waiting entry has its own. Cache eviction goes through
+ * {@link #deleteIfUnleased}, which refuses leased files; a file outside the cache is deleted when its last lease
+ * is released. Deletion and the eviction it may unblock run on a background thread, never on the playback
+ * thread that ended the track.
+ */
+public class FileLeaseManager {
+    private static final Logger logger = LoggerFactory.getLogger(FileLeaseManager.class);
+
+    // Absolute path → leases held; absent means unleased
+    private static final Map<String, Integer> leases = new ConcurrentHashMap<>();
+    private static final AtomicLong deferredEvictions = new AtomicLong();
+
+    private static final ExecutorService cleaner = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "file-lease-cleaner");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // One lease on a file; release() is idempotent, so every exit path can call it
+    public static final class Lease {
+        private final File file;
+        private boolean released = false; // guarded by this
+
+        private Lease(File file) {
+            this.file = file;
+        }
+
+        public File file() {
+            return file;
+        }
+
+        public void release() {
+            synchronized (this) {
+                if (released) return;
+                released = true;
+            }
+            FileLeaseManager.release(file);
+        }
+    }
+
+    public static Lease acquire(File file) {
+        leases.merge(key(file), 1, Integer::sum);
+        return new Lease(file);
+    }
+
+    private static void release(File file) {
+        Integer left = leases.computeIfPresent(key(file), (k, count) -> count > 1 ? count - 1 : null);
+        if (left != null) return;
+        cleaner.execute(() -> {
+            if (AudioCache.isCacheFile(file)) {
+                // Eviction may have been waiting for this file; it is fair game again
+                AudioCache.trim();
+            } else if (deleteIfUnleased(file)) {
+                logger.info("Deleted released file: " + file.getAbsolutePath());
+            }
+        });
+    }
+
+    public static boolean isLeased(File file) {
+        return leases.containsKey(key(file));
+    }
+
+    /**
+     * Deletes the file unless someone holds a lease on it. Runs atomically with {@link #acquire} for the same
+     * file, so a lease can't be taken on a file that is being deleted. False if leased or the delete failed.
+     */
+    public static boolean deleteIfUnleased(File file) {
+        boolean[] deleted = new boolean[1];
+        leases.compute(key(file), (k, count) -> {
+            if (count != null) {
+                deferredEvictions.incrementAndGet();
+                return count;
+            }
+            deleted[0] = !file.exists() || file.delete();
+            return null;
+        });
+        return deleted[0];
+    }
+
+    private static String key(File file) {
+        return file.getAbsolutePath();
+    }
+
+    // Files currently held by at least one queue entry
+    public static int getLeasedFiles() {
+        return leases.size();
+    }
+
+    // Times eviction skipped a file because it was still queued or playing
+    public static long getDeferredEvictions() {
+        return deferredEvictions.get();
+    }
+}
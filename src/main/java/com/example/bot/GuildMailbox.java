@@ -0,0 +1,64 @@
+package com.example.bot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serial executor for one guild's player state: tasks run one at a time, in submission order, whatever thread
+ * submitted them (JDA events, lavaplayer's playback and loader threads, download workers). A drain runs on a
+ * virtual thread that exits as soon as the mailbox is empty, so an idle guild holds no thread at all.
+ */
+public class GuildMailbox {
+    private static final Logger logger = LoggerFactory.getLogger(GuildMailbox.class);
+
+    private final String name;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    public GuildMailbox(String name) {
+        this.name = name;
+    }
+
+    // Queues the task; it runs after every task submitted before it
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (draining.compareAndSet(false, true)) {
+            Thread.ofVirtual().name(name).start(this::drain);
+        }
+    }
+
+    // Queues the task and completes with its result (or its exception, unwrapped)
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    logger.error("Task failed in mailbox {}", name, e);
+                }
+            }
+            draining.set(false);
+            // A task added after the last poll but before the flag cleared would otherwise sit unrun
+            if (tasks.isEmpty() || !draining.compareAndSet(false, true)) return;
+        }
+    }
+}
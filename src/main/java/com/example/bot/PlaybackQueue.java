@@ -0,0 +1,215 @@
+package com.example.bot;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A guild's upcoming entries, in play order, as an implicit treap: a randomized balanced tree ordered by
+ * position, where each node knows its subtree size. Adding, removing, inserting or looking up by position is
+ * O(log n), and so is finding an entry's position (nodes keep parent links and are found through a map). A page
+ * of k entries costs O(log n + k), so rendering !queue doesn't depend on how long the queue is, and
+ * {@link #shuffle} is an in-place O(n) Fisher-Yates over the entries.
+ *
+ * <p>All methods are synchronized; readers get copies, never a live view.
+ */
+public class PlaybackQueue {
+    private static final class Node {
+        QueueEntry entry;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        int size = 1;
+        Node left, right, parent;
+
+        Node(QueueEntry entry) {
+            this.entry = entry;
+        }
+    }
+
+    private Node root;
+    private final Map<QueueEntry, Node> nodes = new IdentityHashMap<>();
+
+    public synchronized int size() {
+        return size(root);
+    }
+
+    public synchronized boolean isEmpty() {
+        return root == null;
+    }
+
+    // Appends the entry at the end
+    public synchronized void add(QueueEntry entry) {
+        insert(size(root), entry);
+    }
+
+    // Inserts the entry so it ends up at index (0 = next to play); index is clamped to the queue
+    public synchronized void insert(int index, QueueEntry entry) {
+        if (nodes.containsKey(entry)) throw new IllegalArgumentException("Entry is already queued");
+        Node node = new Node(entry);
+        nodes.put(entry, node);
+        Node[] parts = split(root, Math.max(0, Math.min(index, size(root))));
+        setRoot(merge(merge(parts[0], node), parts[1]));
+    }
+
+    // The next entry to play, or null if the queue is empty
+    public synchronized QueueEntry peek() {
+        Node node = root;
+        if (node == null) return null;
+        while (node.left != null) node = node.left;
+        return node.entry;
+    }
+
+    public synchronized QueueEntry get(int index) {
+        checkIndex(index);
+        return nodeAt(index).entry;
+    }
+
+    // The entry's position (0 = next to play), or -1 if it isn't queued
+    public synchronized int indexOf(QueueEntry entry) {
+        Node node = nodes.get(entry);
+        if (node == null) return -1;
+        int index = size(node.left);
+        for (Node child = node, parent = node.parent; parent != null; child = parent, parent = parent.parent) {
+            if (parent.right == child) index += size(parent.left) + 1;
+        }
+        return index;
+    }
+
+    public synchronized QueueEntry remove(int index) {
+        checkIndex(index);
+        Node[] before = split(root, index);
+        Node[] taken = split(before[1], 1);
+        setRoot(merge(before[0], taken[1]));
+        nodes.remove(taken[0].entry);
+        return taken[0].entry;
+    }
+
+    // Removes the entry wherever it is; false if it wasn't queued
+    public synchronized boolean remove(QueueEntry entry) {
+        int index = indexOf(entry);
+        if (index < 0) return false;
+        remove(index);
+        return true;
+    }
+
+    // Moves the entry at from so it ends up at to; both are positions in the queue as it is now
+    public synchronized QueueEntry move(int from, int to) {
+        checkIndex(from);
+        checkIndex(to);
+        QueueEntry entry = remove(from);
+        insert(to, entry);
+        return entry;
+    }
+
+    // Up to count entries starting at index, in play order
+    public synchronized List<QueueEntry> range(int index, int count) {
+        List<QueueEntry> out = new ArrayList<>(Math.max(0, Math.min(count, size(root) - index)));
+        collect(root, 0, index, index + count, out);
+        return out;
+    }
+
+    // Randomizes the order in place: the tree keeps its shape and the entries are dealt back into it
+    public synchronized void shuffle() {
+        List<Node> inOrder = new ArrayList<>(size(root));
+        collectNodes(root, inOrder);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = inOrder.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Node a = inOrder.get(i), b = inOrder.get(j);
+            QueueEntry swap = a.entry;
+            a.entry = b.entry;
+            b.entry = swap;
+        }
+        for (Node node : inOrder) nodes.put(node.entry, node);
+    }
+
+    // Empties the queue and returns what was in it, in play order
+    public synchronized List<QueueEntry> clear() {
+        List<QueueEntry> removed = range(0, size(root));
+        root = null;
+        nodes.clear();
+        return removed;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size(root)) {
+            throw new IndexOutOfBoundsException("Position " + (index + 1) + " is not in the queue");
+        }
+    }
+
+    private Node nodeAt(int index) {
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    // In-order walk that skips subtrees entirely outside [from, to); offset is the subtree's first position
+    private static void collect(Node node, int offset, int from, int to, List<QueueEntry> out) {
+        if (node == null || offset >= to || offset + node.size <= from) return;
+        int position = offset + size(node.left);
+        collect(node.left, offset, from, to, out);
+        if (position >= from && position < to) out.add(node.entry);
+        collect(node.right, position + 1, from, to, out);
+    }
+
+    private static void collectNodes(Node node, List<Node> out) {
+        if (node == null) return;
+        collectNodes(node.left, out);
+        out.add(node);
+        collectNodes(node.right, out);
+    }
+
+    // Splits into the first count nodes and the rest
+    private static Node[] split(Node node, int count) {
+        if (node == null) return new Node[] {null, null};
+        if (size(node.left) >= count) {
+            Node[] parts = split(node.left, count);
+            node.left = parts[1];
+            update(node);
+            return new Node[] {parts[0], node};
+        }
+        Node[] parts = split(node.right, count - size(node.left) - 1);
+        node.right = parts[0];
+        update(node);
+        return new Node[] {node, parts[1]};
+    }
+
+    // Concatenates two trees; every node of a comes before every node of b
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        if (node.left != null) node.left.parent = node;
+        if (node.right != null) node.right.parent = node;
+    }
+
+    private void setRoot(Node node) {
+        root = node;
+        if (node != null) node.parent = null;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+}
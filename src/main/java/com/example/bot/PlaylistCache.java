@@ -0,0 +1,191 @@
+package com.example.bot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Expanded playlists, keyed by playlist ID, so a server replaying the same playlist doesn't page through the
+ * Spotify API or re-run yt-dlp --flat-playlist every time. Spotify playlists are stored with their
+ * {@code snapshot_id} and reused for as long as Spotify reports the same one; YouTube playlists have no such
+ * version and are reused for {@link ConfigUtils#youtubePlaylistTtlMs}. Persisted to {@code playlist-cache.bin}
+ * like {@link TrackIndex}, and capped at {@link #MAX_PLAYLISTS}, least recently used first out.
+ */
+public class PlaylistCache {
+    private static final Logger logger = LoggerFactory.getLogger(PlaylistCache.class);
+
+    private static final File CACHE_FILE = new File(ConfigUtils.CONFIG_FOLDER, "playlist-cache.bin");
+    private static final int MAGIC = 0x5342504C; // "SBPL"
+    private static final int VERSION = 1;
+    private static final long SAVE_INTERVAL_SECONDS = 30;
+    private static final int MAX_PLAYLISTS = 200;
+
+    // One playlist entry: what to queue, plus the listed title and duration when the source gives them
+    public record Item(String input, String title, long durationSeconds) {}
+
+    /**
+     * version is the Spotify snapshot_id (empty for YouTube); fetchedAt is when the entries were last read from
+     * the source, lastUsed when they were last handed out.
+     */
+    public record Playlist(String version, long fetchedAt, long lastUsed, List<Item> items) {}
+
+    private static final Map<String, Playlist> playlists = new ConcurrentHashMap<>();
+    private static final AtomicBoolean dirty = new AtomicBoolean();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private static final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "playlist-cache-saver");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public static void init() {
+        load();
+        saver.scheduleWithFixedDelay(PlaylistCache::saveIfDirty, SAVE_INTERVAL_SECONDS, SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(PlaylistCache::saveIfDirty, "playlist-cache-save"));
+    }
+
+    public static String spotifyKey(String playlistId) {
+        return "spotify:" + playlistId;
+    }
+
+    public static String spotifyAlbumKey(String albumId) {
+        return "spotify-album:" + albumId;
+    }
+
+    public static String youtubeKey(String playlistId) {
+        return "youtube:" + playlistId;
+    }
+
+    // The stored playlist whatever its age, for the caller to revalidate; null if never stored
+    public static Playlist get(String key) {
+        return playlists.get(key);
+    }
+
+    // The stored playlist if it was fetched less than maxAgeMs ago, otherwise null
+    public static List<Item> getFresh(String key, long maxAgeMs) {
+        Playlist playlist = playlists.get(key);
+        if (playlist == null || System.currentTimeMillis() - playlist.fetchedAt() >= maxAgeMs) return null;
+        return use(key, playlist);
+    }
+
+    // Hands out a stored playlist the caller has just confirmed is current (e.g. same snapshot_id)
+    public static List<Item> revalidated(String key, Playlist playlist) {
+        return use(key, playlist);
+    }
+
+    private static List<Item> use(String key, Playlist playlist) {
+        hits.incrementAndGet();
+        playlists.put(key, new Playlist(playlist.version(), playlist.fetchedAt(), System.currentTimeMillis(), playlist.items()));
+        dirty.set(true);
+        return playlist.items();
+    }
+
+    // Stores a freshly expanded playlist (a miss: the source had to be read); evicts least recently used over the cap
+    public static void put(String key, String version, List<Item> items) {
+        long now = System.currentTimeMillis();
+        playlists.put(key, new Playlist(version != null ? version : "", now, now, List.copyOf(items)));
+        misses.incrementAndGet();
+        while (playlists.size() > MAX_PLAYLISTS) {
+            playlists.entrySet().stream()
+                    .min(Comparator.comparingLong(e -> e.getValue().lastUsed()))
+                    .ifPresent(e -> playlists.remove(e.getKey()));
+        }
+        dirty.set(true);
+    }
+
+    private static void load() {
+        if (!CACHE_FILE.isFile()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(CACHE_FILE)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("Ignoring playlist cache with unknown format: " + CACHE_FILE.getAbsolutePath());
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                String version = in.readUTF();
+                long fetchedAt = in.readLong();
+                long lastUsed = in.readLong();
+                int itemCount = in.readInt();
+                List<Item> items = new ArrayList<>(itemCount);
+                for (int j = 0; j < itemCount; j++) {
+                    String input = in.readUTF();
+                    String title = in.readBoolean() ? in.readUTF() : null;
+                    items.add(new Item(input, title, in.readInt()));
+                }
+                playlists.put(key, new Playlist(version, fetchedAt, lastUsed, List.copyOf(items)));
+            }
+            logger.info("Playlist cache loaded: {} playlist(s).", playlists.size());
+        } catch (IOException e) {
+            logger.warn("Failed to read playlist cache (starting empty): " + e.getMessage());
+            playlists.clear();
+        }
+    }
+
+    // Writes to a temp file and renames it over the cache, so a crash mid-write leaves the old one intact
+    private static synchronized void saveIfDirty() {
+        if (!dirty.getAndSet(false)) return;
+        File tmp = new File(CACHE_FILE.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                Map<String, Playlist> snapshot = Map.copyOf(playlists);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Playlist> e : snapshot.entrySet()) {
+                    Playlist playlist = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeUTF(playlist.version());
+                    out.writeLong(playlist.fetchedAt());
+                    out.writeLong(playlist.lastUsed());
+                    out.writeInt(playlist.items().size());
+                    for (Item item : playlist.items()) {
+                        out.writeUTF(item.input());
+                        out.writeBoolean(item.title() != null);
+                        if (item.title() != null) out.writeUTF(item.title());
+                        out.writeInt((int) Math.min(Integer.MAX_VALUE, item.durationSeconds()));
+                    }
+                }
+            }
+            Files.move(tmp.toPath(), CACHE_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true); // try again next time
+            logger.warn("Failed to save playlist cache: " + e.getMessage());
+        }
+    }
+
+    public static int getSize() {
+        return playlists.size();
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    // Expansions that had to read the whole playlist from Spotify or yt-dlp
+    public static long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.bot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Starts and tracks every external process the bot spawns (yt-dlp and the Deno children it launches).
+ * Output is drained on background threads so a chatty or hung process can never block its caller, wall-clock
+ * deadlines are enforced by killing the whole process tree, and descendants left behind when a process exits
+ * are reaped. Whatever is still running when the JVM shuts down is killed too.
+ */
+public class ProcessRunner {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessRunner.class);
+
+    // How often live processes are scanned for new descendants and dead ones for orphans
+    private static final long SWEEP_INTERVAL_MS = 5_000;
+    private static final long DRAIN_JOIN_MS = 2_000;
+
+    private static final Map<Long, Handle> live = new ConcurrentHashMap<>();
+    private static final AtomicLong started = new AtomicLong();
+    private static final AtomicLong killed = new AtomicLong();
+    private static final AtomicLong timedOut = new AtomicLong();
+    private static final AtomicLong orphansReaped = new AtomicLong();
+
+    private static final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "process-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        watchdog.scheduleWithFixedDelay(ProcessRunner::sweep, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(ProcessRunner::killAll, "process-cleanup"));
+    }
+
+    /**
+     * One spawned process. The thread that started it is its owner until {@link #setOwner} says otherwise;
+     * cancelling that thread's work kills the process via {@link #killOwnedBy}.
+     */
+    public static final class Handle {
+        private final String label;
+        private final Process process;
+        private final Set<ProcessHandle> descendants = ConcurrentHashMap.newKeySet();
+        private final List<Thread> drains = new ArrayList<>();
+        private volatile Thread owner = Thread.currentThread();
+        private volatile boolean timedOut = false;
+        private volatile boolean killed = false;
+        private ScheduledFuture<?> deadline; // guarded by this
+
+        private Handle(String label, Process process) {
+            this.label = label;
+            this.process = process;
+        }
+
+        public Process process() {
+            return process;
+        }
+
+        public boolean isAlive() {
+            return process.isAlive();
+        }
+
+        public boolean timedOut() {
+            return timedOut;
+        }
+
+        public void setOwner(Thread owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * Kills the process tree if it is still running timeoutMs from now. Replaces any earlier deadline;
+         * 0 or less removes it.
+         */
+        public synchronized void armDeadline(long timeoutMs) {
+            if (deadline != null) deadline.cancel(false);
+            deadline = timeoutMs > 0 ? watchdog.schedule(() -> {
+                if (!process.isAlive()) return;
+                timedOut = true;
+                ProcessRunner.timedOut.incrementAndGet();
+                logger.warn("{} (pid {}) ran past its deadline; killing it.", label, process.pid());
+                kill();
+            }, timeoutMs, TimeUnit.MILLISECONDS) : null;
+        }
+
+        /**
+         * Waits for the process to exit (the deadline still applies) and for its output to be drained.
+         * If the waiting thread is interrupted the process tree is killed before the exception propagates.
+         */
+        public int waitFor() throws InterruptedException {
+            try {
+                int exit = process.waitFor();
+                for (Thread drain : drains) drain.join(DRAIN_JOIN_MS);
+                return exit;
+            } catch (InterruptedException e) {
+                kill();
+                throw e;
+            }
+        }
+
+        // Kills the process and every descendant it has (or had, as far as the last sweep saw)
+        public void kill() {
+            if (!killed && process.isAlive()) {
+                killed = true;
+                ProcessRunner.killed.incrementAndGet();
+            }
+            process.descendants().forEach(descendants::add);
+            descendants.forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }
+
+        private void drain(InputStream stream, Consumer<String> onLine, String streamName) {
+            Thread t = new Thread(() -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        onLine.accept(line);
+                    }
+                } catch (IOException ignored) {
+                    // Stream closes when the process dies
+                }
+            }, label + "-" + streamName);
+            t.setDaemon(true);
+            t.start();
+            drains.add(t);
+        }
+    }
+
+    /**
+     * Starts a tracked process.
+     *
+     * @param label     name used in logs and thread names
+     * @param timeoutMs wall-clock limit after which the process tree is killed; 0 for none
+     * @param onStdout  receives each stdout line on a background thread; null if the caller reads stdout itself
+     * @param onStderr  receives each stderr line on a background thread; null if the caller reads stderr itself
+     */
+    public static Handle start(String label, List<String> command, long timeoutMs,
+                               Consumer<String> onStdout, Consumer<String> onStderr) throws IOException {
+        Process process = new ProcessBuilder(command).start();
+        Handle handle = new Handle(label, process);
+        live.put(process.pid(), handle);
+        started.incrementAndGet();
+        if (onStdout != null) handle.drain(process.getInputStream(), onStdout, "stdout");
+        if (onStderr != null) handle.drain(process.getErrorStream(), onStderr, "stderr");
+        handle.armDeadline(timeoutMs);
+        process.onExit().thenRun(() -> handle.armDeadline(0));
+        return handle;
+    }
+
+    // Kills every process started by (or handed to) the given thread; used when that thread's job is cancelled
+    public static int killOwnedBy(Thread owner) {
+        int count = 0;
+        for (Handle handle : live.values()) {
+            if (handle.owner == owner && handle.isAlive()) {
+                handle.kill();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Remembers the descendants of live processes and reaps the ones whose parent has already exited
+    private static void sweep() {
+        try {
+            for (Handle handle : live.values()) {
+                if (handle.isAlive()) {
+                    handle.process.descendants().forEach(handle.descendants::add);
+                    continue;
+                }
+                for (ProcessHandle orphan : handle.descendants) {
+                    if (orphan.isAlive()) {
+                        logger.info("Reaping orphaned child {} of {}.", orphan.pid(), handle.label);
+                        orphan.destroyForcibly();
+                        orphansReaped.incrementAndGet();
+                    }
+                }
+                live.remove(handle.process.pid(), handle);
+            }
+        } catch (Exception e) {
+            logger.warn("Process sweep failed: " + e.getMessage());
+        }
+    }
+
+    private static void killAll() {
+        for (Handle handle : live.values()) {
+            if (handle.isAlive() || !handle.descendants.isEmpty()) handle.kill();
+        }
+    }
+
+    public static int getLiveProcesses() {
+        return (int) live.values().stream().filter(Handle::isAlive).count();
+    }
+
+    public static long getStarted() {
+        return started.get();
+    }
+
+    public static long getKilled() {
+        return killed.get();
+    }
+
+    public static long getTimedOut() {
+        return timedOut.get();
+    }
+
+    public static long getOrphansReaped() {
+        return orphansReaped.get();
+    }
+}
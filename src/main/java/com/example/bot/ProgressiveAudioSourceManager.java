@@ -0,0 +1,315 @@
+package com.example.bot;
+
+import com.sedmelluq.discord.lavaplayer.container.MediaContainerDescriptor;
+import com.sedmelluq.discord.lavaplayer.container.MediaContainerDetection;
+import com.sedmelluq.discord.lavaplayer.container.MediaContainerHints;
+import com.sedmelluq.discord.lavaplayer.container.MediaContainerRegistry;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.source.ProbingAudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.tools.Units;
+import com.sedmelluq.discord.lavaplayer.tools.io.SeekableInputStream;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.DelegatedAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.InternalAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.info.AudioTrackInfoProvider;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.sedmelluq.discord.lavaplayer.tools.FriendlyException.Severity.SUSPICIOUS;
+
+/**
+ * Plays local files that yt-dlp is still writing. Identifiers look like {@code progressive:<absolute path>};
+ * reads past the end of the file block until yt-dlp appends more bytes (or finishes), so playback can start
+ * once the first few hundred KB are on disk instead of after the whole download.
+ */
+public class ProgressiveAudioSourceManager extends ProbingAudioSourceManager {
+    private static final Logger logger = LoggerFactory.getLogger(ProgressiveAudioSourceManager.class);
+
+    public static final String PREFIX = "progressive:";
+    private static final String MARKER_SUFFIX = ".downloading";
+    // How long a read may wait without the file growing before the track is failed
+    private static final long STALL_TIMEOUT_MS = 30_000;
+    private static final long POLL_INTERVAL_MS = 50;
+
+    // Absolute path → download that is still writing to it
+    private static final Map<String, Download> activeDownloads = new ConcurrentHashMap<>();
+
+    public ProgressiveAudioSourceManager() {
+        super(MediaContainerRegistry.DEFAULT_REGISTRY);
+    }
+
+    // State of one in-flight yt-dlp download, shared by every stream reading the file
+    public static final class Download {
+        private final File file;
+        private final File marker;
+        private volatile boolean finished = false;
+        private volatile boolean failed = false;
+
+        private Download(File file) {
+            this.file = file;
+            this.marker = new File(file.getPath() + MARKER_SUFFIX);
+        }
+
+        // Marks the download done; a failed download's partial file is deleted so it's never mistaken for a full one
+        public void finish(boolean success) {
+            failed = !success;
+            finished = true;
+            activeDownloads.remove(file.getAbsolutePath(), this);
+            if (!success && file.exists() && !file.delete()) {
+                logger.warn("Failed to delete partial download (will retry on next start): " + file.getAbsolutePath());
+                return; // keep the marker so AudioCache.init cleans it up
+            }
+            if (!marker.delete() && marker.exists()) {
+                logger.warn("Failed to remove download marker: " + marker.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Registers a download that is about to start writing to the given file. A marker file is left next to it
+     * until {@link Download#finish} so a crash mid-download can be detected on the next start.
+     */
+    public static Download beginDownload(File file) {
+        Download download = new Download(file);
+        try {
+            download.marker.createNewFile();
+        } catch (IOException e) {
+            logger.warn("Failed to create download marker for " + file.getAbsolutePath() + ": " + e.getMessage());
+        }
+        activeDownloads.put(file.getAbsolutePath(), download);
+        return download;
+    }
+
+    // True if the file is still being written, or was left half-written by a download that never finished
+    public static boolean isIncomplete(File file) {
+        return activeDownloads.containsKey(file.getAbsolutePath()) || new File(file.getPath() + MARKER_SUFFIX).exists();
+    }
+
+    // Deletes a half-written file left behind by a crash, along with its marker
+    public static void discardIncomplete(File file) {
+        if (file.exists() && !file.delete()) {
+            logger.warn("Failed to delete incomplete download: " + file.getAbsolutePath());
+            return;
+        }
+        new File(file.getPath() + MARKER_SUFFIX).delete();
+        logger.info("Discarded incomplete download: " + file.getName());
+    }
+
+    public static String identifierFor(File file) {
+        return PREFIX + file.getAbsolutePath();
+    }
+
+    @Override
+    public String getSourceName() {
+        return "progressive";
+    }
+
+    @Override
+    public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference) {
+        if (reference.identifier == null || !reference.identifier.startsWith(PREFIX)) return null;
+
+        File file = new File(reference.identifier.substring(PREFIX.length()));
+        try (GrowingFileInputStream stream = new GrowingFileInputStream(file)) {
+            return handleLoadResult(new MediaContainerDetection(containerRegistry, reference, stream,
+                    MediaContainerHints.from(null, null)).detectContainer());
+        } catch (IOException e) {
+            throw new FriendlyException("Failed to open file for progressive playback.", SUSPICIOUS, e);
+        }
+    }
+
+    @Override
+    protected AudioTrack createTrack(AudioTrackInfo trackInfo, MediaContainerDescriptor containerTrackFactory) {
+        return new ProgressiveAudioTrack(trackInfo, containerTrackFactory, this);
+    }
+
+    @Override
+    public boolean isTrackEncodable(AudioTrack track) {
+        return true;
+    }
+
+    @Override
+    public void encodeTrack(AudioTrack track, DataOutput output) throws IOException {
+        encodeTrackFactory(((ProgressiveAudioTrack) track).containerTrackFactory, output);
+    }
+
+    @Override
+    public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException {
+        MediaContainerDescriptor containerTrackFactory = decodeTrackFactory(input);
+        return containerTrackFactory != null ? new ProgressiveAudioTrack(trackInfo, containerTrackFactory, this) : null;
+    }
+
+    @Override
+    public void shutdown() {
+        // Nothing to release
+    }
+
+    // Same as lavaplayer's LocalAudioTrack, but reads through a GrowingFileInputStream
+    static class ProgressiveAudioTrack extends DelegatedAudioTrack {
+        private final MediaContainerDescriptor containerTrackFactory;
+        private final ProgressiveAudioSourceManager sourceManager;
+
+        ProgressiveAudioTrack(AudioTrackInfo trackInfo, MediaContainerDescriptor containerTrackFactory,
+                              ProgressiveAudioSourceManager sourceManager) {
+            super(trackInfo);
+            this.containerTrackFactory = containerTrackFactory;
+            this.sourceManager = sourceManager;
+        }
+
+        @Override
+        public void process(LocalAudioTrackExecutor executor) throws Exception {
+            File file = new File(trackInfo.identifier.substring(PREFIX.length()));
+            try (GrowingFileInputStream stream = new GrowingFileInputStream(file)) {
+                processDelegate((InternalAudioTrack) containerTrackFactory.createTrack(trackInfo, stream), executor);
+            }
+        }
+
+        @Override
+        protected AudioTrack makeShallowClone() {
+            return new ProgressiveAudioTrack(trackInfo, containerTrackFactory, sourceManager);
+        }
+
+        @Override
+        public AudioSourceManager getSourceManager() {
+            return sourceManager;
+        }
+    }
+
+    /**
+     * Buffered, seekable view of a file that may still be growing. Reads and seeks past the bytes written so far
+     * block until yt-dlp catches up; if the download fails or stops growing for {@link #STALL_TIMEOUT_MS}
+     * the read throws, which ends the track instead of hanging playback.
+     */
+    static class GrowingFileInputStream extends SeekableInputStream {
+        private final File file;
+        private final FileChannel channel;
+        private final Download download; // null once the file is complete
+        private final byte[] buffer = new byte[64 * 1024];
+        private long bufferStart = 0;
+        private int bufferLength = 0;
+        private long position = 0;
+
+        GrowingFileInputStream(File file) throws IOException {
+            super(Units.CONTENT_LENGTH_UNKNOWN, 0);
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.download = activeDownloads.get(file.getAbsolutePath());
+            if (download == null) contentLength = channel.size();
+        }
+
+        @Override
+        public int read() throws IOException {
+            // Straight from the buffer: the container readers pull headers a byte at a time
+            if (position < bufferStart || position >= bufferStart + bufferLength) {
+                if (!fill()) return -1;
+            }
+            return buffer[(int) (position++ - bufferStart)] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (position < bufferStart || position >= bufferStart + bufferLength) {
+                if (!fill()) return -1;
+            }
+            int offsetInBuffer = (int) (position - bufferStart);
+            int n = Math.min(len, bufferLength - offsetInBuffer);
+            System.arraycopy(buffer, offsetInBuffer, b, off, n);
+            position += n;
+            return n;
+        }
+
+        // Loads the buffer starting at the current position, waiting for the writer if needed. False on EOF.
+        private boolean fill() throws IOException {
+            long lastSize = channel.size();
+            long lastGrowth = System.currentTimeMillis();
+            while (true) {
+                boolean complete = download == null || download.finished;
+                int n = channel.read(ByteBuffer.wrap(buffer), position);
+                if (n > 0) {
+                    bufferStart = position;
+                    bufferLength = n;
+                    return true;
+                }
+                if (complete) {
+                    if (download != null && download.failed) throw new IOException("Download failed: " + file.getName());
+                    contentLength = channel.size();
+                    return false;
+                }
+
+                long size = channel.size();
+                if (size != lastSize) {
+                    lastSize = size;
+                    lastGrowth = System.currentTimeMillis();
+                } else if (System.currentTimeMillis() - lastGrowth > STALL_TIMEOUT_MS) {
+                    throw new IOException("Download stalled while streaming " + file.getName());
+                }
+                try {
+                    Thread.sleep(POLL_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for download");
+                }
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) return 0;
+            long target = position + n;
+            if (contentLength != Units.CONTENT_LENGTH_UNKNOWN) target = Math.min(target, contentLength);
+            long skipped = target - position;
+            position = target;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, channel.size() - position));
+        }
+
+        @Override
+        public long getPosition() {
+            return position;
+        }
+
+        @Override
+        public boolean canSeekHard() {
+            return true;
+        }
+
+        // Just moves the cursor; the next read waits for the bytes if they haven't been downloaded yet
+        @Override
+        protected void seekHard(long newPosition) {
+            position = newPosition;
+        }
+
+        @Override
+        public List<AudioTrackInfoProvider> getTrackInfoProviders() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
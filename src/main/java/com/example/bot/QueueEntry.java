@@ -0,0 +1,119 @@
+package com.example.bot;
+
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * One item in a guild's playback queue. Starts out as just the user's query and a display title;
+ * the file is only downloaded (and the AudioTrack loaded) once the entry gets within the scheduler's
+ * lookahead window, so long playlists don't download tracks that may never be played.
+ */
+public class QueueEntry {
+    public enum State { PENDING, RESOLVING, READY, FAILED, CANCELLED }
+
+    private final String query;
+    private final String displayTitle;
+    private final Consumer<QueueEntry> resolver;
+    private final Runnable onDropped;
+    private final AtomicReference<State> state = new AtomicReference<>(State.PENDING);
+    private volatile AudioTrack track;
+    private volatile File file;
+    private volatile long expectedDurationMs = 0; // from yt-dlp's track info, before the track is loaded
+    // Keeps the file on disk while this entry may still play it; see FileLeaseManager
+    private final AtomicReference<FileLeaseManager.Lease> lease = new AtomicReference<>();
+
+    /**
+     * @param query        what to hand yt-dlp (search terms or URL)
+     * @param displayTitle title shown in the queue before the track is resolved
+     * @param resolver     starts downloading this entry; must end in TrackScheduler.onResolved or onResolveFailed
+     */
+    public QueueEntry(String query, String displayTitle, Consumer<QueueEntry> resolver) {
+        this(query, displayTitle, resolver, null);
+    }
+
+    /**
+     * @param onDropped runs if the entry is cancelled before it started resolving, when the resolver never will;
+     *                  may be null
+     */
+    public QueueEntry(String query, String displayTitle, Consumer<QueueEntry> resolver, Runnable onDropped) {
+        this.query = query;
+        this.displayTitle = displayTitle;
+        this.resolver = resolver;
+        this.onDropped = onDropped;
+    }
+
+    // Kicks off resolution the first time the entry enters the lookahead window; no-op afterwards
+    boolean startResolving() {
+        if (!state.compareAndSet(State.PENDING, State.RESOLVING)) return false;
+        resolver.accept(this);
+        return true;
+    }
+
+    boolean markReady(File file, AudioTrack track) {
+        this.file = file;
+        this.track = track;
+        return state.compareAndSet(State.RESOLVING, State.READY);
+    }
+
+    void markFailed() {
+        state.compareAndSet(State.PENDING, State.FAILED);
+        state.compareAndSet(State.RESOLVING, State.FAILED);
+        releaseFile();
+    }
+
+    void cancel() {
+        State previous = state.getAndSet(State.CANCELLED);
+        releaseFile();
+        if (previous == State.PENDING && onDropped != null) onDropped.run();
+    }
+
+    // Takes over the lease on the entry's file, acquired by whoever found the file so it couldn't be evicted meanwhile
+    void holdFile(FileLeaseManager.Lease acquired) {
+        FileLeaseManager.Lease previous = lease.getAndSet(acquired);
+        if (previous != null) previous.release();
+    }
+
+    // The entry is done with its file (played, removed, cancelled or failed); safe to call more than once
+    void releaseFile() {
+        FileLeaseManager.Lease held = lease.getAndSet(null);
+        if (held != null) held.release();
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public String getDisplayTitle() {
+        return displayTitle;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public boolean isCancelled() {
+        return state.get() == State.CANCELLED;
+    }
+
+    public AudioTrack getTrack() {
+        return track;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    void setExpectedDurationMs(long durationMs) {
+        this.expectedDurationMs = durationMs;
+    }
+
+    // Playback length if known (loaded track, else yt-dlp's reported duration), otherwise 0
+    public long getDurationMs() {
+        AudioTrack loaded = track;
+        if (loaded != null && loaded.getDuration() > 0 && loaded.getDuration() != Long.MAX_VALUE) return loaded.getDuration();
+        return expectedDurationMs;
+    }
+}
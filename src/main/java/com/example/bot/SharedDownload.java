@@ -0,0 +1,261 @@
+package com.example.bot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One yt-dlp run, shared by every request for the same track while it is in flight. Requests are matched by
+ * normalized query or video ID, so a burst of identical !play commands — in one server or many — costs a single
+ * download, and each requester is told about progress and completion through its own {@link Listener}.
+ *
+ * <p>The video ID (and so the cache file) is only known once yt-dlp reports the track info, right before it
+ * starts writing. If a different query turns out to be a video that is already downloading, this run's yt-dlp is
+ * killed and its listeners move over to the other run.
+ */
+public class SharedDownload {
+    private static final Logger logger = LoggerFactory.getLogger(SharedDownload.class);
+
+    // "query:<normalized query>" or "id:<videoId>" → run in flight
+    private static final Map<String, SharedDownload> inFlight = new HashMap<>(); // guarded by SharedDownload.class
+    private static final AtomicLong started = new AtomicLong();
+    private static final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Receives one run's events, on whichever thread produced them. A listener that joins late first gets
+     * the events it missed.
+     */
+    public interface Listener {
+        // Guild the listener's request came from; see cancelGuild
+        long guildId();
+
+        void onDownloading(YtDlpOutput.TrackInfo info);
+
+        void onProgress(YtDlpOutput.Progress progress);
+
+        // Progressive runs only: enough of the file is on disk to start playback
+        void onPlayable(File file, YtDlpOutput.TrackInfo info);
+
+        // file is null if the download failed; error is set if it failed with an exception
+        void onFinished(File file, YtDlpOutput.TrackInfo info, String error);
+
+        // The listener's guild cancelled its downloads; no further events follow
+        void onCancelled();
+    }
+
+    // leader is true for the caller that has to drive the run and then call finish()
+    public record Join(SharedDownload run, boolean leader) {}
+
+    final String input;
+    final boolean progressiveMode = ConfigUtils.progressivePlayback;
+    final long startedAt = System.currentTimeMillis();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<String> keys = new HashSet<>(); // guarded by SharedDownload.class
+
+    volatile Thread leaderThread;
+    volatile YtDlpOutput.TrackInfo info;
+    volatile File cachedFile; // set if the resolved video was already in the cache
+    // Keeps the run's file (cached or being written) from eviction until every listener has leased it; see finish()
+    private volatile FileLeaseManager.Lease fileLease;
+    volatile ProgressiveAudioSourceManager.Download progressive;
+    volatile boolean succeeded = false;
+    volatile SharedDownload mergedInto; // set if this run was abandoned for another run of the same video
+    volatile boolean abandoned = false; // every listener's guild cancelled; the leader's yt-dlp has been killed
+
+    private boolean playable = false; // guarded by this
+    private boolean finished = false; // guarded by this
+    private File resultFile;          // guarded by this
+    private String error;             // guarded by this
+
+    private SharedDownload(String input) {
+        this.input = input;
+    }
+
+    /**
+     * Attaches the listener to the run already in flight for this input, or starts a new run whose leader
+     * (the caller) must drive the download and then call {@link #finish}.
+     */
+    public static Join join(String input, String knownVideoId, Listener listener) {
+        String queryKey = "query:" + AudioCache.normalizeQuery(input);
+        String idKey = knownVideoId != null ? "id:" + knownVideoId : null;
+        SharedDownload run;
+        boolean leader;
+        synchronized (SharedDownload.class) {
+            run = idKey != null ? inFlight.get(idKey) : null;
+            if (run == null) run = inFlight.get(queryKey);
+            leader = run == null;
+            if (leader) {
+                run = new SharedDownload(input);
+                run.leaderThread = Thread.currentThread();
+                started.incrementAndGet();
+            } else {
+                coalesced.incrementAndGet();
+                logger.info("Joining in-flight download of '{}' for '{}'.", run.input, input);
+            }
+            run.register(queryKey);
+            if (idKey != null) run.register(idKey);
+        }
+        run.subscribe(listener);
+        return new Join(run, leader);
+    }
+
+    // Caller holds SharedDownload.class
+    private void register(String key) {
+        SharedDownload owner = inFlight.putIfAbsent(key, this);
+        if (owner == null) keys.add(key);
+    }
+
+    private void subscribe(Listener listener) {
+        SharedDownload target;
+        synchronized (this) {
+            target = mergedInto;
+            if (target == null) {
+                listeners.add(listener);
+                if (info != null && cachedFile == null) listener.onDownloading(info);
+                if (playable) listener.onPlayable(outputFile(), info);
+                if (finished) listener.onFinished(resultFile, info, error);
+                return;
+            }
+        }
+        target.subscribe(listener);
+    }
+
+    void onInfo(YtDlpOutput.TrackInfo trackInfo) {
+        if (info != null || trackInfo.videoId() == null) return;
+        info = trackInfo;
+        TrackIndex.record(input, trackInfo);
+
+        SharedDownload owner;
+        synchronized (SharedDownload.class) {
+            owner = inFlight.putIfAbsent("id:" + trackInfo.videoId(), this);
+            if (owner == null) keys.add("id:" + trackInfo.videoId());
+        }
+        if (owner != null && owner != this) {
+            mergeInto(owner);
+            return;
+        }
+
+        // Another server may already have it; yt-dlp sees the existing file and skips the download
+        FileLeaseManager.Lease cached = AudioCache.lookupAndLease(trackInfo.videoId());
+        fileLease = cached != null ? cached : FileLeaseManager.acquire(outputFile());
+        if (cached != null) {
+            cachedFile = cached.file();
+            return;
+        }
+        if (progressiveMode) progressive = ProgressiveAudioSourceManager.beginDownload(outputFile());
+        synchronized (this) {
+            listeners.forEach(l -> l.onDownloading(trackInfo));
+        }
+    }
+
+    void onProgress(YtDlpOutput.Progress progress) {
+        if (info == null || cachedFile != null || mergedInto != null) return;
+        DownloadMetrics.recordSpeed(progress.bytesPerSecond());
+        listeners.forEach(l -> l.onProgress(progress));
+        if (progressive != null && progress.downloadedBytes() >= ConfigUtils.progressiveMinBytes) {
+            synchronized (this) {
+                if (playable) return;
+                playable = true;
+                listeners.forEach(l -> l.onPlayable(outputFile(), info));
+            }
+        }
+    }
+
+    // Hands this run's listeners to the run already downloading the same video, then kills our yt-dlp
+    private void mergeInto(SharedDownload owner) {
+        logger.info("'{}' resolved to {}, which '{}' is already downloading; merging.",
+                input, info.videoId(), owner.input);
+        synchronized (SharedDownload.class) {
+            // Later requests for this query find the owner through its video ID, now that the query is remembered
+            for (String key : keys) inFlight.remove(key, this);
+            keys.clear();
+        }
+        List<Listener> moved;
+        synchronized (this) {
+            mergedInto = owner; // listeners joining from now on are forwarded by subscribe()
+            moved = List.copyOf(listeners);
+        }
+        moved.forEach(owner::subscribe);
+        coalesced.addAndGet(moved.size());
+        ProcessRunner.killOwnedBy(leaderThread);
+    }
+
+    /**
+     * Detaches one guild's listeners from every run in flight, e.g. on !stop. A run left with no listeners is
+     * abandoned and its yt-dlp killed; runs that other guilds are still waiting on keep going.
+     */
+    public static void cancelGuild(long guildId) {
+        Set<SharedDownload> runs;
+        synchronized (SharedDownload.class) {
+            runs = new HashSet<>(inFlight.values());
+        }
+        runs.forEach(run -> run.detachGuild(guildId));
+    }
+
+    void detachGuild(long guildId) {
+        List<Listener> removed = new ArrayList<>();
+        synchronized (this) {
+            if (finished || mergedInto != null) return;
+            for (Listener l : listeners) {
+                if (l.guildId() == guildId) removed.add(l);
+            }
+            listeners.removeAll(removed);
+            if (!removed.isEmpty() && listeners.isEmpty()) {
+                logger.info("Nobody is waiting for '{}' any more; abandoning the download.", input);
+                abandoned = true;
+                synchronized (SharedDownload.class) {
+                    for (String key : keys) inFlight.remove(key, this);
+                    keys.clear();
+                }
+                // finish() needs this lock, so the leader is still inside this run's job
+                leaderThread.interrupt();
+                ProcessRunner.killOwnedBy(leaderThread);
+            }
+        }
+        removed.forEach(Listener::onCancelled);
+    }
+
+    /**
+     * Ends the run and notifies every listener. Called once by the leader after the download, unless the run
+     * was merged into another one.
+     */
+    void finish(String failure) {
+        File result = cachedFile != null ? cachedFile : succeeded ? outputFile() : null;
+        synchronized (SharedDownload.class) {
+            for (String key : keys) inFlight.remove(key, this);
+            keys.clear();
+        }
+        synchronized (this) {
+            finished = true;
+            resultFile = result;
+            error = failure;
+            listeners.forEach(l -> l.onFinished(result, info, failure));
+        }
+        // Every listener has taken its own lease by now
+        FileLeaseManager.Lease held = fileLease;
+        if (held != null) held.release();
+    }
+
+    File outputFile() {
+        return info != null ? AudioCache.fileFor(info.videoId()) : null;
+    }
+
+    // Downloads that ran their own yt-dlp; every other request for them is counted by getCoalesced
+    public static long getStarted() {
+        return started.get();
+    }
+
+    // Requests that attached to a download already in flight instead of starting their own
+    public static long getCoalesced() {
+        return coalesced.get();
+    }
+}
@@ -3,6 +3,7 @@ package com.example.bot;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.source.AudioSourceManagers;
+import com.sedmelluq.discord.lavaplayer.track.playback.NonAllocatingAudioFrameBuffer;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.audio.AudioModuleConfig;
@@ -15,7 +16,6 @@ import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.requests.GatewayIntent;
-import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import java.awt.Color;
 import moe.kyokobot.libdave.NativeDaveFactory;
 import moe.kyokobot.libdave.jda.LDJDADaveSessionFactory;
@@ -28,9 +28,7 @@ import java.util.concurrent.*;
 public class Spotibot extends ListenerAdapter {
     private static final Logger logger = LoggerFactory.getLogger(Spotibot.class);
     private final AudioPlayerManager playerManager = new DefaultAudioPlayerManager();
-    private ExecutorService downloadExecutor = Executors.newCachedThreadPool();
-    private final BlockingQueue<Runnable> downloadQueue = new LinkedBlockingQueue<>();
-    private Future<?> currentDownloadTask;
+    private final DownloadWorkerPool downloadPool;
     private TrackSchedulerRegistry trackSchedulerRegistry;
     private static String BOT_TOKEN;
     private static String STATUS;
@@ -45,6 +43,9 @@ public class Spotibot extends ListenerAdapter {
         ConfigUtils.createConfigFolder();
         ConfigUtils.ensureConfigFileExists();
         ConfigUtils.loadConfig();
+        AudioCache.init();
+        TrackIndex.init();
+        PlaylistCache.init();
 
         BOT_TOKEN = ConfigUtils.BOT_TOKEN;
         STATUS = ConfigUtils.STATUS;
@@ -76,15 +77,18 @@ public class Spotibot extends ListenerAdapter {
     }
 
     public Spotibot() {
+        // Frames are copied into each guild's reusable buffer (see AudioPlayerSendHandler), not allocated per 20 ms
+        playerManager.getConfiguration().setFrameBufferFactory(NonAllocatingAudioFrameBuffer::new);
+        playerManager.registerSourceManager(new ProgressiveAudioSourceManager());
         AudioSourceManagers.registerRemoteSources(playerManager);
         AudioSourceManagers.registerLocalSource(playerManager);
         trackSchedulerRegistry = new TrackSchedulerRegistry(playerManager);
-        startDownloadQueueProcessor();
+        downloadPool = new DownloadWorkerPool(ConfigUtils.downloadWorkers);
     }
 
     @Override
     public void onMessageReceived(MessageReceivedEvent event) {
-        CommandHandler.handleMessage(event, this, playerManager, trackSchedulerRegistry, downloadQueue);
+        CommandHandler.handleMessage(event, this, playerManager, trackSchedulerRegistry, downloadPool);
     }
 
     @Override
@@ -106,7 +110,7 @@ public class Spotibot extends ListenerAdapter {
         else page = Math.max(0, page - 1);
         queuePageMap.put(guild.getIdLong(), page);
 
-        java.util.concurrent.LinkedBlockingQueue<AudioTrack> playbackQueue = scheduler.getQueue();
+        PlaybackQueue playbackQueue = scheduler.getQueue();
         EmbedBuilder eb = CommandHandler.buildQueueEmbed(scheduler, playbackQueue, page);
         java.util.List<ActionRow> components = CommandHandler.buildQueueComponents(playbackQueue.size(), page);
 
@@ -131,46 +135,8 @@ public class Spotibot extends ListenerAdapter {
         }
     }
 
-    private void startDownloadQueueProcessor() {
-        downloadExecutor.submit(() -> {
-            while (!Thread.currentThread().isInterrupted()) {
-                try {
-                    Runnable downloadTask = downloadQueue.take();
-                    currentDownloadTask = downloadExecutor.submit(downloadTask);
-                    currentDownloadTask.get();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    logger.info("Download queue processor interrupted; shutting down...");
-                    break;
-                } catch (Exception e) {
-                    logger.error("Error processing download task", e);
-                }
-            }
-        });
-    }
-
-    public Future<?> getCurrentDownloadTask() {
-        return currentDownloadTask;
-    }
-
-    public void setCurrentDownloadTask(Future<?> currentDownloadTask) {
-        this.currentDownloadTask = currentDownloadTask;
-    }
-
-    public ExecutorService getDownloadExecutor() {
-        return downloadExecutor;
-    }
-
-    public void setDownloadExecutor(ExecutorService downloadExecutor) {
-        this.downloadExecutor = downloadExecutor;
-    }
-
-    public BlockingQueue<Runnable> getDownloadQueue() {
-        return downloadQueue;
-    }
-
-    public void startDownloadQueueProcessorPublic() {
-        startDownloadQueueProcessor();
+    public DownloadWorkerPool getDownloadPool() {
+        return downloadPool;
     }
 
     public Map<Long, Integer> getQueuePageMap() {
@@ -0,0 +1,112 @@
+package com.example.bot;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client-side limits for Spotify Web API calls, shared by every guild. A token bucket spaces requests out to
+ * {@link ConfigUtils#spotifyRequestsPerSecond} (with bursts of twice that), a 429's Retry-After holds back every
+ * request until it has passed, and a retry budget caps retries at a fraction of recent traffic so an outage
+ * isn't answered with a retry storm. The limiter only computes delays; {@link SpotifyUtils} does the waiting.
+ */
+public class SpotifyRateLimiter {
+    // Each first attempt earns this much retry budget, up to MAX_RETRY_BUDGET; each retry spends 1
+    private static final double RETRY_BUDGET_PER_REQUEST = 0.2;
+    private static final double MAX_RETRY_BUDGET = 20;
+    private static final long BACKOFF_BASE_MS = 500;
+    private static final long BACKOFF_MAX_MS = 16_000;
+    public static final int MAX_ATTEMPTS = 4;
+
+    // All of the below are guarded by SpotifyRateLimiter.class
+    private static boolean started = false; // the bucket starts full on first use, once the rate is known
+    private static double tokens = 0;
+    private static long refilledAt = 0;
+    private static long pausedUntil = 0;
+    private static double retryBudget = MAX_RETRY_BUDGET / 2;
+
+    private static final AtomicLong requests = new AtomicLong();
+    private static final AtomicLong delayed = new AtomicLong();
+    private static final AtomicLong throttled = new AtomicLong();
+    private static final AtomicLong retried = new AtomicLong();
+    private static final AtomicLong budgetExhausted = new AtomicLong();
+
+    /**
+     * Reserves a slot for one request and returns how long to wait before sending it (0 to send now).
+     * Reservations may run the bucket negative, so later callers queue up behind earlier ones.
+     */
+    public static synchronized long reserve(boolean retry) {
+        double rate = Math.max(0.1, ConfigUtils.spotifyRequestsPerSecond);
+        double burst = Math.max(1, rate * 2);
+        long now = System.currentTimeMillis();
+        if (!started) {
+            started = true;
+            tokens = burst;
+            refilledAt = now;
+        }
+        tokens = Math.min(burst, tokens + (now - refilledAt) * rate / 1000.0);
+        refilledAt = now;
+        tokens -= 1;
+
+        if (!retry) {
+            requests.incrementAndGet();
+            retryBudget = Math.min(MAX_RETRY_BUDGET, retryBudget + RETRY_BUDGET_PER_REQUEST);
+        }
+        long wait = tokens >= 0 ? 0 : (long) Math.ceil(-tokens * 1000 / rate);
+        wait = Math.max(wait, pausedUntil - now);
+        if (wait > 0) delayed.incrementAndGet();
+        return wait;
+    }
+
+    // Spotify answered 429: nobody sends anything until retryAfterMs has passed
+    public static synchronized void throttled(long retryAfterMs) {
+        throttled.incrementAndGet();
+        pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + retryAfterMs);
+    }
+
+    // Spends one unit of retry budget; false means the request should fail instead of retrying
+    public static synchronized boolean tryRetry() {
+        if (retryBudget < 1) {
+            budgetExhausted.incrementAndGet();
+            return false;
+        }
+        retryBudget -= 1;
+        retried.incrementAndGet();
+        return true;
+    }
+
+    // Exponential backoff for the given retry (0-based) with jitter, so parallel failures don't retry in lockstep
+    public static long backoffMs(int retry) {
+        long cap = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(retry, 10));
+        return ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+    }
+
+    // Starts over with a full bucket, no pause and the given retry budget; for tests
+    static synchronized void reset(double budget) {
+        started = false;
+        pausedUntil = 0;
+        retryBudget = Math.min(MAX_RETRY_BUDGET, budget);
+    }
+
+    public static long getRequests() {
+        return requests.get();
+    }
+
+    // Requests held back by the bucket or a Retry-After pause
+    public static long getDelayed() {
+        return delayed.get();
+    }
+
+    // 429 responses received
+    public static long getThrottled() {
+        return throttled.get();
+    }
+
+    public static long getRetried() {
+        return retried.get();
+    }
+
+    // Retries refused because the budget ran out
+    public static long getBudgetExhausted() {
+        return budgetExhausted.get();
+    }
+}
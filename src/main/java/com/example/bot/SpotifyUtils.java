@@ -5,172 +5,516 @@ import java.io.*;
 import okhttp3.*;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.json.JSONObject;
-import org.json.JSONArray;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Spotify Web API client. Every call is asynchronous: requests go out through OkHttp's dispatcher and results
+ * come back as CompletableFutures, so command handling never blocks the JDA event thread on Spotify I/O.
+ * The access token lives in an immutable holder behind a volatile field, so readers never lock; it is
+ * refreshed ahead of expiry on a schedule, and concurrent refreshes collapse into one request.
+ */
 public class SpotifyUtils {
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SpotifyUtils.class);
     private static final String CONFIG_PATH = "config/spotifyconfig.json";
     private static final MediaType FORM = MediaType.get("application/x-www-form-urlencoded");
-    private static final OkHttpClient HTTP = new OkHttpClient();
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
+    // Requests in flight to Spotify at once across all guilds; the rest wait in OkHttp's dispatcher
+    private static final int MAX_CONCURRENT_REQUESTS = 8;
+    private static final OkHttpClient HTTP = createClient();
+
+    // Playlist pages are fetched this many at a time per playlist, 100 tracks each (Spotify's maximum)
+    private static final int PLAYLIST_PAGE_PARALLELISM = 4;
+    private static final int PLAYLIST_PAGE_SIZE = 100;
+    // Album track pages and /tracks?ids= batches are capped at 50 by Spotify
+    private static final int ALBUM_PAGE_SIZE = 50;
+    private static final int TRACK_BATCH_SIZE = 50;
+    // Released albums practically never change, so their track lists are reused without asking Spotify
+    private static final long ALBUM_CACHE_TTL_MS = TimeUnit.DAYS.toMillis(30);
+
+    // open.spotify.com links (with or without an intl-xx segment) and spotify: URIs
+    private static final Pattern LINK = Pattern.compile(
+            "(?:open\\.spotify\\.com/(?:intl-[\\w-]+/)?|spotify:)(track|playlist|album|artist)[/:]([A-Za-z0-9]+)");
+
+    // The token is refreshed this long before it expires, and not used at all in the last minute
+    private static final long REFRESH_AHEAD_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final long EXPIRY_MARGIN_MS = TimeUnit.MINUTES.toMillis(1);
+
+    // Token refreshes, rate-limit waits and retry backoff
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "spotify-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+
     private static String CLIENT_ID;
     private static String CLIENT_SECRET;
-    private static boolean configLoaded = false;
-    private static boolean configAvailable = false;
+    // Overridable in spotifyconfig.json ("api_url", "token_url"), e.g. to point at a local mock server
+    private static String apiUrl = "https://api.spotify.com/v1";
+    private static String tokenUrl = "https://accounts.spotify.com/api/token";
+    // Country for artist top tracks, which Spotify requires with client credentials ("market")
+    private static String market = "US";
+    private static volatile boolean configLoaded = false;
+    private static volatile boolean configAvailable = false;
+
+    // Immutable, so a reader always sees a matching value and expiry; replaced wholesale on refresh
+    private record AccessToken(String value, long expiresAt) {
+        boolean isUsable() {
+            return System.currentTimeMillis() < expiresAt - EXPIRY_MARGIN_MS;
+        }
+    }
+
+    private static volatile AccessToken token;
+    // The refresh in progress, shared by everyone who needs a token meanwhile; null when none is running
+    private static final AtomicReference<CompletableFuture<AccessToken>> refreshInFlight = new AtomicReference<>();
+
+    // One page of a playlist, album or batch: the search queries for its playable tracks, and the total track count
+    public record TrackPage(int offset, int total, List<String> queries) {}
+
+    public enum LinkType {
+        TRACK("track"), PLAYLIST("playlist"), ALBUM("album"), ARTIST("artist");
 
-    private static String accessToken;
-    private static long tokenExpiresAt = 0; // epoch ms
+        public final String label;
 
-    private static synchronized void ensureConfig() {
+        LinkType(String label) {
+            this.label = label;
+        }
+    }
+
+    public record SpotifyLink(LinkType type, String id) {}
+
+    private static OkHttpClient createClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(MAX_CONCURRENT_REQUESTS);
+        return new OkHttpClient.Builder().dispatcher(dispatcher).build();
+    }
+
+    private static void ensureConfig() {
         if (configLoaded) return;
-        configLoaded = true;
-        try {
-            JsonNode config = MAPPER.readTree(new File(CONFIG_PATH));
-            CLIENT_ID = config.path("client_id").asText(null);
-            CLIENT_SECRET = config.path("client_secret").asText(null);
-            configAvailable = CLIENT_ID != null && !CLIENT_ID.isBlank()
-                           && CLIENT_SECRET != null && !CLIENT_SECRET.isBlank();
-            if (configAvailable) logger.info("Spotify config loaded.");
-            else logger.warn("spotifyconfig.json missing client_id/client_secret — Spotify disabled.");
-        } catch (Exception e) {
-            logger.warn("spotifyconfig.json not found or invalid — Spotify disabled. ({})", e.getMessage());
+        synchronized (SpotifyUtils.class) {
+            if (configLoaded) return;
+            try {
+                JsonNode config = MAPPER.readTree(new File(CONFIG_PATH));
+                CLIENT_ID = config.path("client_id").asText(null);
+                CLIENT_SECRET = config.path("client_secret").asText(null);
+                apiUrl = config.path("api_url").asText(apiUrl).replaceAll("/+$", "");
+                tokenUrl = config.path("token_url").asText(tokenUrl);
+                market = config.path("market").asText(market);
+                configAvailable = CLIENT_ID != null && !CLIENT_ID.isBlank()
+                               && CLIENT_SECRET != null && !CLIENT_SECRET.isBlank();
+                if (configAvailable) logger.info("Spotify config loaded.");
+                else logger.warn("spotifyconfig.json missing client_id/client_secret — Spotify disabled.");
+            } catch (Exception e) {
+                logger.warn("spotifyconfig.json not found or invalid — Spotify disabled. ({})", e.getMessage());
+            }
+            configLoaded = true;
         }
     }
 
-    public static synchronized void authenticate() throws IOException {
+    // A usable token: the current one if it has time left, otherwise the (shared) refresh
+    private static CompletableFuture<AccessToken> validToken() {
         ensureConfig();
-        if (!configAvailable) throw new IOException("Spotify not configured.");
+        if (!configAvailable) return CompletableFuture.failedFuture(new IOException("Spotify not configured."));
+        AccessToken current = token;
+        if (current != null && current.isUsable()) return CompletableFuture.completedFuture(current);
+        return refresh();
+    }
 
+    // Single-flight: whoever arrives while a refresh is running gets that refresh's result
+    private static CompletableFuture<AccessToken> refresh() {
+        CompletableFuture<AccessToken> mine = new CompletableFuture<>();
+        CompletableFuture<AccessToken> running = refreshInFlight.compareAndExchange(null, mine);
+        if (running != null) return running;
+
+        requestToken().whenComplete((fresh, error) -> {
+            if (error != null) {
+                refreshInFlight.set(null);
+                logger.warn("Spotify authentication failed: {}", unwrap(error).getMessage());
+                mine.completeExceptionally(unwrap(error));
+                return;
+            }
+            token = fresh; // published before the slot is freed, so nobody starts a second refresh
+            refreshInFlight.set(null);
+            scheduleRefresh(fresh);
+            mine.complete(fresh);
+        });
+        return mine;
+    }
+
+    // Renews the token in the background before it runs out, so requests never wait on authentication
+    private static void scheduleRefresh(AccessToken current) {
+        long delay = Math.max(0, current.expiresAt() - REFRESH_AHEAD_MS - System.currentTimeMillis());
+        scheduler.schedule(() -> {
+            if (token == current) refresh();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static CompletableFuture<AccessToken> requestToken() {
         String encoded = Base64.getEncoder()
                 .encodeToString((CLIENT_ID + ":" + CLIENT_SECRET).getBytes());
 
         RequestBody body = RequestBody.create("grant_type=client_credentials", FORM);
         Request request = new Request.Builder()
-                .url("https://accounts.spotify.com/api/token")
+                .url(tokenUrl)
                 .post(body)
                 .addHeader("Authorization", "Basic " + encoded)
                 .build();
 
-        try (Response response = HTTP.newCall(request).execute()) {
-            if (!response.isSuccessful())
-                throw new IOException("Spotify auth failed: HTTP " + response.code());
+        return sendWithRetry(request).thenApply(response -> {
+            try (response) {
+                if (!response.isSuccessful())
+                    throw new IOException("Spotify auth failed: HTTP " + response.code());
 
-            JsonNode json = MAPPER.readTree(response.body().string());
-            accessToken = json.get("access_token").asText();
-            int expiresIn = json.path("expires_in").asInt(3600);
-            // Renew 60 s before actual expiry to avoid mid-request failures
-            tokenExpiresAt = System.currentTimeMillis() + (expiresIn - 60) * 1000L;
-            logger.info("Spotify authenticated. Token valid for {} s.", expiresIn);
-        }
+                JsonNode json = MAPPER.readTree(response.body().string());
+                int expiresIn = json.path("expires_in").asInt(3600);
+                logger.info("Spotify authenticated. Token valid for {} s.", expiresIn);
+                return new AccessToken(json.get("access_token").asText(),
+                        System.currentTimeMillis() + expiresIn * 1000L);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
     }
 
-    private static synchronized void authenticateIfNeeded() throws IOException {
-        if (accessToken == null || System.currentTimeMillis() >= tokenExpiresAt) {
-            authenticate();
+    // Runs the request on OkHttp's dispatcher; cancelling the future cancels the call
+    private static CompletableFuture<Response> send(Request request) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        Call call = HTTP.newCall(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call c, Response response) {
+                if (!future.complete(response)) response.close();
+            }
+        });
+        future.whenComplete((response, error) -> {
+            if (future.isCancelled()) call.cancel();
+        });
+        return future;
+    }
+
+    /**
+     * Sends a request through {@link SpotifyRateLimiter}. 429s, 5xx responses and network errors are retried up
+     * to {@link SpotifyRateLimiter#MAX_ATTEMPTS} times while the retry budget lasts: after a 429 once its
+     * Retry-After has passed (which also holds back every other request), otherwise after a jittered exponential
+     * backoff. When retries run out the last response (or error) is returned as is. Package-private for tests.
+     */
+    static CompletableFuture<Response> sendWithRetry(Request request) {
+        return attempt(request, 0);
+    }
+
+    private static CompletableFuture<Response> attempt(Request request, int attempt) {
+        return delay(SpotifyRateLimiter.reserve(attempt > 0))
+                .thenCompose(ready -> send(request))
+                .handle((response, error) -> {
+                    long wait;
+                    if (error == null) {
+                        int code = response.code();
+                        if (code != 429 && code < 500) return CompletableFuture.completedFuture(response);
+                        wait = code == 429 ? retryAfterMs(response) : SpotifyRateLimiter.backoffMs(attempt);
+                        if (code == 429) {
+                            SpotifyRateLimiter.throttled(wait);
+                            logger.warn("Spotify rate limit hit; retrying after {} ms.", wait);
+                        }
+                        if (attempt + 1 >= SpotifyRateLimiter.MAX_ATTEMPTS || !SpotifyRateLimiter.tryRetry()) {
+                            return CompletableFuture.completedFuture(response);
+                        }
+                        response.close();
+                    } else {
+                        if (unwrap(error) instanceof CancellationException
+                                || attempt + 1 >= SpotifyRateLimiter.MAX_ATTEMPTS || !SpotifyRateLimiter.tryRetry()) {
+                            return CompletableFuture.<Response>failedFuture(unwrap(error));
+                        }
+                        wait = SpotifyRateLimiter.backoffMs(attempt);
+                    }
+                    return delay(wait).thenCompose(ready -> attempt(request, attempt + 1));
+                })
+                .thenCompose(next -> next);
+    }
+
+    // Retry-After is in seconds; Spotify always sends it with a 429, but assume a second if it doesn't
+    private static long retryAfterMs(Response response) {
+        try {
+            return Math.max(0, Long.parseLong(response.header("Retry-After", "1").trim())) * 1000;
+        } catch (NumberFormatException e) {
+            return 1000;
         }
     }
 
-    public static List<String> getPlaylistTracks(String playlistId) throws IOException {
-        ensureConfig();
-        if (!configAvailable) throw new IOException("Spotify not configured.");
-        authenticateIfNeeded();
+    // Completes after ms milliseconds (right away for 0) without holding a thread
+    private static CompletableFuture<Void> delay(long ms) {
+        if (ms <= 0) return CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        scheduler.schedule(() -> done.complete(null), ms, TimeUnit.MILLISECONDS);
+        return done;
+    }
 
-        List<String> trackTitles = new ArrayList<>();
-        String url = "https://api.spotify.com/v1/playlists/" + playlistId + "/tracks?limit=50";
-
-        while (url != null) {
-            Request request = new Request.Builder()
-                    .url(url)
-                    .get()
-                    .addHeader("Authorization", "Bearer " + accessToken)
-                    .build();
-
-            try (Response response = HTTP.newCall(request).execute()) {
-                if (response.code() == 401) {
-                    // Token expired mid-session — re-auth once and retry
-                    authenticate();
-                    return getPlaylistTracks(playlistId);
+    /**
+     * GETs a Web API URL with the current token and parses the JSON body. A 401 means the token went bad
+     * early: it is dropped and the request retried once with a fresh one.
+     */
+    private static CompletableFuture<JsonNode> getJson(String url) {
+        return getJson(url, false);
+    }
+
+    private static CompletableFuture<JsonNode> getJson(String url, boolean reauthenticated) {
+        return validToken().thenCompose(current -> sendWithRetry(new Request.Builder()
+                .url(url)
+                .get()
+                .addHeader("Authorization", "Bearer " + current.value())
+                .build()
+        ).thenCompose(response -> {
+            try (response) {
+                if (response.code() == 401 && !reauthenticated) {
+                    if (token == current) token = null;
+                    return getJson(url, true);
                 }
-                if (response.code() == 404) {
+                if (response.code() == 404)
                     throw new IOException("SPOTIFY_NOT_ACCESSIBLE");
-                }
+                if (response.code() == 429)
+                    throw new IOException("Spotify is rate limiting us; try again in a minute.");
                 if (!response.isSuccessful())
                     throw new IOException("Spotify API error: HTTP " + response.code());
-
-                JsonNode json = MAPPER.readTree(response.body().string());
-                if (json.has("items")) {
-                    json.get("items").forEach(item -> {
-                        JsonNode track = item.get("track");
-                        if (track != null && !track.isNull() && track.has("name")) {
-                            String name   = track.path("name").asText("Unknown");
-                            String artist = track.path("artists").path(0).path("name").asText("Unknown");
-                            trackTitles.add(name + " " + artist);
-                        }
-                    });
-                }
-                url = json.has("next") && !json.get("next").isNull()
-                        ? json.get("next").asText() : null;
+                return CompletableFuture.completedFuture(MAPPER.readTree(response.body().string()));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
             }
+        }));
+    }
+
+    // The cause behind the CompletionException/ExecutionException wrappers futures add
+    public static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
         }
+        return error;
+    }
+
+    /**
+     * Streams the search queries for a playlist's tracks to onPage, one page at a time and in playlist order.
+     * A playlist seen before is revalidated with one lightweight request for its snapshot_id and served from
+     * {@link PlaylistCache} in a single page if it hasn't changed; otherwise it is fetched (see
+     * {@link #fetchPlaylistTracks}) and cached under the new snapshot. onPage runs on an OkHttp thread.
+     *
+     * @return completes with the number of tracks delivered
+     */
+    public static CompletableFuture<Integer> streamPlaylistTracks(String playlistId, Consumer<TrackPage> onPage) {
+        String key = PlaylistCache.spotifyKey(playlistId);
+        return getPlaylistSnapshotId(playlistId).thenCompose(snapshotId -> {
+            PlaylistCache.Playlist cached = PlaylistCache.get(key);
+            if (cached != null && snapshotId != null && snapshotId.equals(cached.version())) {
+                logger.info("Spotify playlist {} unchanged (snapshot {}); using {} cached track(s).",
+                        playlistId, snapshotId, cached.items().size());
+                List<String> queries = PlaylistCache.revalidated(key, cached).stream().map(PlaylistCache.Item::input).toList();
+                onPage.accept(new TrackPage(0, queries.size(), queries));
+                return CompletableFuture.completedFuture(queries.size());
+            }
 
-        return trackTitles;
+            // Pages are delivered one after another, each after the previous one's delivery completed
+            List<String> trackTitles = new ArrayList<>();
+            return fetchPlaylistTracks(playlistId, page -> {
+                trackTitles.addAll(page.queries());
+                onPage.accept(page);
+            }).thenApply(done -> {
+                // Without a snapshot there's nothing to revalidate against later, so don't cache
+                if (snapshotId != null) {
+                    PlaylistCache.put(key, snapshotId, trackTitles.stream().map(t -> new PlaylistCache.Item(t, null, 0)).toList());
+                }
+                return trackTitles.size();
+            });
+        });
     }
 
-    public static String getTrackTitle(String trackId) throws IOException {
-        ensureConfig();
-        if (!configAvailable) throw new IOException("Spotify not configured.");
-        authenticateIfNeeded();
+    // The playlist's current snapshot_id (changes on every edit), or null if Spotify didn't report one
+    private static CompletableFuture<String> getPlaylistSnapshotId(String playlistId) {
+        return getJson(apiUrl + "/playlists/" + playlistId + "?fields=snapshot_id").thenApply(json -> {
+            String snapshotId = json.path("snapshot_id").asText("");
+            return snapshotId.isEmpty() ? null : snapshotId;
+        });
+    }
 
-        Request request = new Request.Builder()
-                .url("https://api.spotify.com/v1/tracks/" + trackId)
-                .get()
-                .addHeader("Authorization", "Bearer " + accessToken)
-                .build();
+    private static CompletableFuture<Void> fetchPlaylistTracks(String playlistId, Consumer<TrackPage> onPage) {
+        return fetchPages(PLAYLIST_PAGE_SIZE, offset -> fetchPlaylistPage(playlistId, offset), onPage);
+    }
 
-        try (Response response = HTTP.newCall(request).execute()) {
-            if (response.code() == 401) { authenticate(); return getTrackTitle(trackId); }
-            if (!response.isSuccessful())
-                throw new IOException("Spotify API error: HTTP " + response.code());
+    /**
+     * Fetches the first page to learn the total, then the remaining pages with at most
+     * {@link #PLAYLIST_PAGE_PARALLELISM} in flight. Pages are handed to onPage in order as soon as every page
+     * before them has arrived, so queuing starts after the first round-trip. If onPage throws (e.g. the import
+     * was stopped), pages not requested yet are skipped. Shared by playlists, albums and track batches.
+     */
+    private static CompletableFuture<Void> fetchPages(int pageSize, IntFunction<CompletableFuture<TrackPage>> fetchPage,
+                                                      Consumer<TrackPage> onPage) {
+        return fetchPage.apply(0).thenCompose(first -> {
+            onPage.accept(first);
 
-            JsonNode json = MAPPER.readTree(response.body().string());
-            String name   = json.path("name").asText("Unknown");
-            String artist = json.path("artists").path(0).path("name").asText("Unknown");
-            return name + " " + artist;
+            AtomicBoolean failed = new AtomicBoolean();
+            List<CompletableFuture<TrackPage>> rest = new ArrayList<>();
+            for (int offset = pageSize, i = 0; offset < first.total(); offset += pageSize, i++) {
+                int pageOffset = offset;
+                // Each page waits for the one PLAYLIST_PAGE_PARALLELISM places earlier to finish
+                CompletableFuture<?> slot = i < PLAYLIST_PAGE_PARALLELISM
+                        ? CompletableFuture.completedFuture(null)
+                        : rest.get(i - PLAYLIST_PAGE_PARALLELISM);
+                rest.add(slot.handle((page, error) -> null).thenCompose(ignored -> failed.get()
+                        ? CompletableFuture.failedFuture(new CancellationException("Another page failed"))
+                        : fetchPage.apply(pageOffset).whenComplete((page, error) -> {
+                            if (error != null) failed.set(true); // pages not started yet are skipped
+                        })));
+            }
+
+            CompletableFuture<Void> delivered = CompletableFuture.completedFuture(null);
+            for (CompletableFuture<TrackPage> page : rest) {
+                delivered = delivered.thenCombine(page, (done, p) -> {
+                    try {
+                        onPage.accept(p);
+                    } catch (RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                    return null;
+                });
+            }
+            return delivered;
+        });
+    }
+
+    private static CompletableFuture<TrackPage> fetchPlaylistPage(String playlistId, int offset) {
+        return getJson(apiUrl + "/playlists/" + playlistId + "/tracks?offset=" + offset
+                + "&limit=" + PLAYLIST_PAGE_SIZE + "&fields=total,items(track(id,name,artists(name)))").thenApply(json -> {
+            List<String> queries = new ArrayList<>();
+            json.path("items").forEach(item -> addQuery(queries, item.get("track")));
+            return new TrackPage(offset, json.path("total").asInt(offset + queries.size()), queries);
+        });
+    }
+
+    /**
+     * Streams an album's tracks like {@link #streamPlaylistTracks}. Album track lists are cached in
+     * {@link PlaylistCache} for {@link #ALBUM_CACHE_TTL_MS} without revalidation.
+     */
+    public static CompletableFuture<Integer> streamAlbumTracks(String albumId, Consumer<TrackPage> onPage) {
+        String key = PlaylistCache.spotifyAlbumKey(albumId);
+        List<PlaylistCache.Item> cached = PlaylistCache.getFresh(key, ALBUM_CACHE_TTL_MS);
+        if (cached != null) {
+            List<String> queries = cached.stream().map(PlaylistCache.Item::input).toList();
+            onPage.accept(new TrackPage(0, queries.size(), queries));
+            return CompletableFuture.completedFuture(queries.size());
         }
+        List<String> trackTitles = new ArrayList<>();
+        return fetchPages(ALBUM_PAGE_SIZE, offset -> getJson(apiUrl + "/albums/" + albumId + "/tracks?offset=" + offset
+                + "&limit=" + ALBUM_PAGE_SIZE).thenApply(json -> {
+            List<String> queries = new ArrayList<>();
+            json.path("items").forEach(track -> addQuery(queries, track));
+            return new TrackPage(offset, json.path("total").asInt(offset + queries.size()), queries);
+        }), page -> {
+            trackTitles.addAll(page.queries());
+            onPage.accept(page);
+        }).thenApply(done -> {
+            PlaylistCache.put(key, null, trackTitles.stream().map(t -> new PlaylistCache.Item(t, null, 0)).toList());
+            return trackTitles.size();
+        });
     }
 
-    public static String extractSpotifyId(String url) {
-        if (url.contains("/track/"))    return url.split("/track/")[1].split("\\?")[0];
-        if (url.contains("/playlist/")) return url.split("/playlist/")[1].split("\\?")[0];
-        return null;
+    // An artist's top tracks (up to 10, one request) in popularity order; not cached, since they change weekly
+    public static CompletableFuture<Integer> streamArtistTopTracks(String artistId, Consumer<TrackPage> onPage) {
+        return getJson(apiUrl + "/artists/" + artistId + "/top-tracks?market=" + market).thenApply(json -> {
+            List<String> queries = new ArrayList<>();
+            json.path("tracks").forEach(track -> addQuery(queries, track));
+            onPage.accept(new TrackPage(0, queries.size(), queries));
+            return queries.size();
+        });
     }
 
-    public static boolean isPlaylist(String input) {
-        return input.contains("list=");
+    /**
+     * Streams the search queries for a list of track IDs, in order. Tracks already in {@link TrackIndex} cost
+     * nothing; the rest are looked up {@link #TRACK_BATCH_SIZE} at a time through {@code /tracks?ids=}, so a
+     * message with 30 track links is one API call. IDs Spotify doesn't know are skipped.
+     */
+    public static CompletableFuture<Integer> streamTracks(List<String> trackIds, Consumer<TrackPage> onPage) {
+        AtomicInteger count = new AtomicInteger();
+        return fetchPages(TRACK_BATCH_SIZE, offset -> {
+            List<String> batch = trackIds.subList(offset, Math.min(trackIds.size(), offset + TRACK_BATCH_SIZE));
+            Map<String, String> found = new HashMap<>();
+            for (String id : batch) {
+                String known = TrackIndex.spotifyQuery(id);
+                if (known != null) found.put(id, known);
+            }
+            List<String> unknown = batch.stream().filter(id -> !found.containsKey(id)).distinct().toList();
+            CompletableFuture<Void> lookedUp = unknown.isEmpty()
+                    ? CompletableFuture.completedFuture(null)
+                    : getJson(apiUrl + "/tracks?ids=" + String.join(",", unknown)).thenAccept(json -> {
+                        // The response lists the tracks in request order, with null for IDs Spotify doesn't know
+                        for (JsonNode track : json.path("tracks")) {
+                            List<String> query = new ArrayList<>(1);
+                            addQuery(query, track);
+                            if (!query.isEmpty()) found.put(track.path("id").asText(), query.get(0));
+                        }
+                    });
+            return lookedUp.thenApply(done -> new TrackPage(offset, trackIds.size(),
+                    batch.stream().map(found::get).filter(Objects::nonNull).toList()));
+        }, page -> {
+            count.addAndGet(page.queries().size());
+            onPage.accept(page);
+        }).thenApply(done -> count.get());
     }
 
-    public static List<String> getYouTubePlaylistTitles(String playlistUrl) throws IOException {
-        List<String> titles = new ArrayList<>();
-        ProcessBuilder pb = new ProcessBuilder("yt-dlp", "--flat-playlist", "-J", playlistUrl);
-        Process process = pb.start();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            StringBuilder json = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) json.append(line);
-            JSONArray entries = new JSONObject(json.toString()).getJSONArray("entries");
-            for (int i = 0; i < entries.length(); i++)
-                titles.add(entries.getJSONObject(i).getString("title"));
-        }
-        return titles;
+    // Streams whatever a link points at: one track, or the tracks of a playlist, album or artist
+    public static CompletableFuture<Integer> streamLink(SpotifyLink link, Consumer<TrackPage> onPage) {
+        return switch (link.type()) {
+            case TRACK -> streamTracks(List.of(link.id()), onPage);
+            case PLAYLIST -> streamPlaylistTracks(link.id(), onPage);
+            case ALBUM -> streamAlbumTracks(link.id(), onPage);
+            case ARTIST -> streamArtistTopTracks(link.id(), onPage);
+        };
+    }
+
+    // Adds the "title artist" search query for a track object (if it is a playable track) and remembers it
+    private static void addQuery(List<String> queries, JsonNode track) {
+        if (track == null || track.isNull() || !track.has("name")) return;
+        String query = trackQuery(track);
+        queries.add(query);
+        TrackIndex.rememberSpotifyTrack(track.path("id").asText(null), query);
+    }
+
+    private static String trackQuery(JsonNode track) {
+        String name   = track.path("name").asText("Unknown");
+        String artist = track.path("artists").path(0).path("name").asText("Unknown");
+        return name + " " + artist;
+    }
+
+    // Completes with the "title artist" search query for a track
+    public static CompletableFuture<String> getTrackTitle(String trackId) {
+        return getJson(apiUrl + "/tracks/" + trackId).thenApply(json -> {
+            String query = trackQuery(json);
+            TrackIndex.rememberSpotifyTrack(trackId, query);
+            return query;
+        });
     }
 
-    public static String getYouTubeTitle(String videoUrl) throws IOException {
-        ProcessBuilder pb = new ProcessBuilder("yt-dlp", "--get-title", videoUrl);
-        Process process = pb.start();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            return reader.readLine();
+    // Every Spotify link in a message, in the order they appear
+    public static List<SpotifyLink> findLinks(String text) {
+        List<SpotifyLink> links = new ArrayList<>();
+        Matcher m = LINK.matcher(text);
+        while (m.find()) {
+            links.add(new SpotifyLink(LinkType.valueOf(m.group(1).toUpperCase(Locale.ROOT)), m.group(2)));
         }
+        return links;
     }
 }
@@ -0,0 +1,198 @@
+package com.example.bot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent index of how queries resolved: normalized search query (or URL) → YouTube video ID, canonical
+ * title, duration and size, plus Spotify track ID → the search query built from its metadata. Lookups are
+ * in-memory hash lookups, so a repeated search skips the yt-dlp search entirely and an entry's title and
+ * length are known the moment it is queued.
+ *
+ * <p>Resolutions older than {@link ConfigUtils#trackIndexTtlMs} are treated as unknown, so the next request
+ * searches again and re-records the answer. The index is written to {@code track-index.bin} in a compact
+ * binary format, every {@link #SAVE_INTERVAL_SECONDS} seconds when it has changed and on shutdown.
+ */
+public class TrackIndex {
+    private static final Logger logger = LoggerFactory.getLogger(TrackIndex.class);
+
+    private static final File INDEX_FILE = new File(ConfigUtils.CONFIG_FOLDER, "track-index.bin");
+    private static final int MAGIC = 0x53424958; // "SBIX"
+    private static final int VERSION = 1;
+    private static final long SAVE_INTERVAL_SECONDS = 30;
+    // writeUTF is limited to 64 KB per string; nobody types a search this long
+    private static final int MAX_KEY_LENGTH = 500;
+
+    // What a query resolved to; the audio itself lives at AudioCache.fileFor(videoId) if it is cached
+    public record Entry(String videoId, String title, long durationSeconds, long filesizeBytes, long resolvedAt) {
+        public File file() {
+            return AudioCache.fileFor(videoId);
+        }
+
+        boolean isFresh(long now) {
+            return now - resolvedAt < ConfigUtils.trackIndexTtlMs;
+        }
+    }
+
+    // Normalized query → resolution
+    private static final Map<String, Entry> resolved = new ConcurrentHashMap<>();
+    // Spotify track ID → search query; Spotify metadata doesn't change, so these don't expire
+    private static final Map<String, String> spotifyQueries = new ConcurrentHashMap<>();
+
+    private static final AtomicBoolean dirty = new AtomicBoolean();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong expired = new AtomicLong();
+
+    private static final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "track-index-saver");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Loads the index from disk and starts saving it periodically
+    public static void init() {
+        load();
+        saver.scheduleWithFixedDelay(TrackIndex::saveIfDirty, SAVE_INTERVAL_SECONDS, SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(TrackIndex::saveIfDirty, "track-index-save"));
+    }
+
+    /**
+     * Returns what the input resolved to last time, or null if it's unknown or the answer has expired.
+     * Updates the hit/miss counters.
+     */
+    public static Entry lookup(String input) {
+        Entry entry = resolved.get(AudioCache.normalizeQuery(input));
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (!entry.isFresh(System.currentTimeMillis())) {
+            expired.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry;
+    }
+
+    // Remembers what the input resolved to; replaces an older answer
+    public static void record(String input, YtDlpOutput.TrackInfo info) {
+        if (info.videoId() == null) return;
+        String key = AudioCache.normalizeQuery(input);
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) return;
+        String title = info.title() != null ? info.title() : "";
+        if (title.length() > MAX_KEY_LENGTH) title = title.substring(0, MAX_KEY_LENGTH);
+        resolved.put(key, new Entry(info.videoId(), title, info.durationSeconds(), info.filesizeBytes(),
+                System.currentTimeMillis()));
+        dirty.set(true);
+    }
+
+    // The search query a Spotify track was turned into, or null if it hasn't been seen
+    public static String spotifyQuery(String trackId) {
+        return trackId != null ? spotifyQueries.get(trackId) : null;
+    }
+
+    public static void rememberSpotifyTrack(String trackId, String query) {
+        if (trackId == null || trackId.isBlank() || query.length() > MAX_KEY_LENGTH) return;
+        if (!query.equals(spotifyQueries.put(trackId, query))) dirty.set(true);
+    }
+
+    private static void load() {
+        if (!INDEX_FILE.isFile()) return;
+        long now = System.currentTimeMillis();
+        int dropped = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(INDEX_FILE)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("Ignoring track index with unknown format: " + INDEX_FILE.getAbsolutePath());
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                Entry entry = new Entry(in.readUTF(), in.readUTF(), in.readInt(), in.readLong(), in.readLong());
+                // Expired answers would only be searched again; don't carry them forward
+                if (entry.isFresh(now)) resolved.put(key, entry);
+                else dropped++;
+            }
+            int spotifyCount = in.readInt();
+            for (int i = 0; i < spotifyCount; i++) {
+                spotifyQueries.put(in.readUTF(), in.readUTF());
+            }
+            if (dropped > 0) dirty.set(true);
+            logger.info("Track index loaded: {} resolution(s), {} Spotify track(s), {} expired dropped.",
+                    resolved.size(), spotifyQueries.size(), dropped);
+        } catch (IOException e) {
+            logger.warn("Failed to read track index (starting empty): " + e.getMessage());
+            resolved.clear();
+            spotifyQueries.clear();
+        }
+    }
+
+    // Writes to a temp file and renames it over the index, so a crash mid-write leaves the old index intact
+    private static synchronized void saveIfDirty() {
+        if (!dirty.getAndSet(false)) return;
+        File tmp = new File(INDEX_FILE.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                Map<String, Entry> snapshot = Map.copyOf(resolved);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> e : snapshot.entrySet()) {
+                    Entry entry = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeUTF(entry.videoId());
+                    out.writeUTF(entry.title());
+                    out.writeInt((int) Math.min(Integer.MAX_VALUE, entry.durationSeconds()));
+                    out.writeLong(entry.filesizeBytes());
+                    out.writeLong(entry.resolvedAt());
+                }
+                Map<String, String> spotify = Map.copyOf(spotifyQueries);
+                out.writeInt(spotify.size());
+                for (Map.Entry<String, String> e : spotify.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeUTF(e.getValue());
+                }
+            }
+            Files.move(tmp.toPath(), INDEX_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true); // try again next time
+            logger.warn("Failed to save track index: " + e.getMessage());
+        }
+    }
+
+    public static int getSize() {
+        return resolved.size();
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    public static long getExpired() {
+        return expired.get();
+    }
+}
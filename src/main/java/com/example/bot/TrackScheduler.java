@@ -9,7 +9,6 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.concurrent.LinkedBlockingQueue;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
@@ -17,30 +16,63 @@ import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
 import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
 import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
 import java.awt.Color;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * One guild's playback: the queue, the current track and the player. Every change to that state runs on the
+ * guild's {@link GuildMailbox}, one at a time in arrival order — commands, track-end events from lavaplayer and
+ * download completions alike — so racing !skip commands can't advance twice or delete the wrong file. Public
+ * mutators only post to the mailbox and return right away. The current track is published as one immutable
+ * {@link NowPlaying} snapshot, so readers never lock and never see an entry paired with another entry's track.
+ */
 public class TrackScheduler implements com.sedmelluq.discord.lavaplayer.player.event.AudioEventListener {
     private static final Logger logger = LoggerFactory.getLogger(TrackScheduler.class);
 
-    private final Map<String, String> trackTitles = new ConcurrentHashMap<>();
     private final AudioPlayerManager playerManager;
     private final AudioPlayer player;
-    private final LinkedBlockingQueue<AudioTrack> queue;
-    private AudioTrack currentTrack;
+    private final AudioPlayerSendHandler sendHandler;
+    private final PlaybackQueue queue;
+    private final GuildMailbox mailbox;
     private final Guild guild;
     private final AtomicInteger pendingDownloadCount = new AtomicInteger(0);
     private volatile GuildMessageChannel notifyChannel;
+    private volatile long stalledSince = 0; // when playback went silent waiting on a download; 0 if it isn't
+    private volatile long lastActiveAt = System.currentTimeMillis(); // last command, enqueue or track change
+
+    // What's playing, replaced wholesale on every change; written only on the mailbox
+    public record NowPlaying(QueueEntry entry, AudioTrack track) {}
+    private static final NowPlaying NOTHING = new NowPlaying(null, null);
+    private volatile NowPlaying nowPlaying = NOTHING;
+
+    // Stand-in for entries whose duration isn't known yet when working out download deadlines
+    private static final long ESTIMATED_TRACK_MS = 210_000;
     // Constructor to initialize the scheduler
     public TrackScheduler(AudioPlayerManager playerManager, AudioPlayer player, Spotibot bot, Guild guild) {
         this.playerManager = playerManager; // Initialize playerManager
         this.player = player;
-        this.queue = new LinkedBlockingQueue<>();
+        this.sendHandler = new AudioPlayerSendHandler(player);
+        this.queue = new PlaybackQueue();
         this.guild = guild;
+        this.mailbox = new GuildMailbox("guild-" + guild.getId());
         this.player.addListener(this); // Register this scheduler as an event listener
     }
 
+    public Guild getGuild() {
+        return guild;
+    }
+
+    // Marks the scheduler as in use; see isIdle
+    public void touch() {
+        lastActiveAt = System.currentTimeMillis();
+    }
+
+    // Nothing playing, queued or pending, and no activity for idleMs: TrackSchedulerRegistry may evict it
+    public boolean isIdle(long now, long idleMs) {
+        return isQueueEmpty() && now - lastActiveAt >= idleMs;
+    }
+
     public void setNotifyChannel(GuildMessageChannel channel) {
         this.notifyChannel = channel;
     }
@@ -50,25 +82,64 @@ public class TrackScheduler implements com.sedmelluq.discord.lavaplayer.player.e
         return player;
     }
 
-    // Adds a track to the queue or plays it immediately if nothing is playing
-    public void queue(AudioTrack track) {
-        track.setUserData(track.getIdentifier());
-        String timestamp = getCurrentTimestamp();
-        logger.info("[" + timestamp + "] Queueing track: " + track.getInfo().title);
-        if (!player.startTrack(track, true)) {
-            queue.offer(track);
-            logger.info("[" + timestamp + "] Track added to queue: " + track.getInfo().title);
-        } else {
-            currentTrack = track;
-            logger.info("[" + timestamp + "] Now playing: " + track.getInfo().title);
-            sendNowPlaying(track);
+    // The player's send handler; reused across reconnects so its buffer and underrun counters carry over
+    public AudioPlayerSendHandler getSendHandler() {
+        return sendHandler;
+    }
+
+    // Adds an entry to the end of the queue; it is only downloaded once it enters the lookahead window
+    public void enqueue(QueueEntry entry) {
+        touch();
+        mailbox.execute(() -> {
+            queue.add(entry);
+            logger.info("[" + getCurrentTimestamp() + "] Entry added to queue: " + entry.getDisplayTitle());
+            fillLookahead();
+        });
+    }
+
+    // Starts resolving every entry within the next ConfigUtils.lookaheadTracks that hasn't been started yet
+    private void fillLookahead() {
+        queue.range(0, ConfigUtils.lookaheadTracks).forEach(QueueEntry::startResolving);
+    }
+
+    // Starts an entry that is ready to play
+    private void play(QueueEntry entry) {
+        long stalled = stalledSince;
+        if (stalled > 0) {
+            stalledSince = 0;
+            DownloadMetrics.recordStall(System.currentTimeMillis() - stalled);
         }
+        QueueEntry previous = nowPlaying.entry();
+        nowPlaying = new NowPlaying(entry, entry.getTrack());
+        player.startTrack(entry.getTrack(), false);
+        logger.info("[" + getCurrentTimestamp() + "] Now playing: " + entry.getDisplayTitle());
+        sendNowPlaying(entry);
+
+        // Started from startNextIfIdle before the previous track's end event was handled; that event is now stale
+        if (previous != null && previous != entry) previous.releaseFile();
     }
 
-    private void sendNowPlaying(AudioTrack track) {
+    // Removes failed entries from the head of the queue and returns the head if it's ready to play, otherwise null
+    private QueueEntry pollReadyHead() {
+        QueueEntry head;
+        while ((head = queue.peek()) != null && (head.getState() == QueueEntry.State.FAILED || head.isCancelled())) {
+            queue.remove(head);
+        }
+        if (head != null && head.getState() == QueueEntry.State.READY && queue.remove(head)) return head;
+        return null;
+    }
+
+    // Starts the head of the queue if nothing is playing and it has finished resolving
+    private void startNextIfIdle() {
+        if (player.getPlayingTrack() != null) return;
+        QueueEntry next = pollReadyHead();
+        if (next != null) play(next);
+    }
+
+    private void sendNowPlaying(QueueEntry entry) {
         if (notifyChannel == null) return;
-        String title = trackTitles.getOrDefault(track.getIdentifier(), track.getInfo().title);
-        title = title.replace("ytsearch:", "").trim();
+        AudioTrack track = entry.getTrack();
+        String title = entry.getDisplayTitle();
         EmbedBuilder eb = new EmbedBuilder()
                 .setColor(new Color(0x1db954))
                 .setTitle("🎵 Now Playing")
@@ -84,180 +155,240 @@ public class TrackScheduler implements com.sedmelluq.discord.lavaplayer.player.e
         notifyChannel.sendMessageEmbeds(eb.build()).queue(null, e -> {});
     }
 
-    // Method to get the file name of the currently playing track
-    public String getCurrentTrackFileName() {
-        if (currentTrack != null) {
-            Object userData = currentTrack.getUserData();
-            if (userData instanceof String) {
-                String fileName = (String) userData;
-                logger.info("Current track file name: " + fileName);
-                return fileName;
-            } else {
-                logger.warn("Current track does not have a valid file name in user data.");
-                return null;
-            }
-        } else {
-            logger.warn("No track is currently playing.");
-            return null;
-        }
-    }
-
-    // Method to delete the file for the currently stored track file name
-    public boolean deleteTrackFileByName() {
-        if (currentTrack != null) {
-            Object userData = currentTrack.getUserData();
-            if (userData instanceof String) {
-                String fileName = (String) userData;
-                File file = new File(fileName);
-                if (file.exists() && file.isFile()) {
-                    if (file.delete()) {
-                        logger.info("Successfully deleted file: " + fileName);
-                        return true;
-                    } else {
-                        logger.error("Failed to delete file: " + fileName);
-                        return false;
-                    }
-                } else {
-                    logger.warn("File does not exist or is not a valid file: " + fileName);
-                    return false;
-                }
-            } else {
-                logger.warn("Current track does not have a valid file name in user data.");
-                return false;
+    /**
+     * Skips the given entry (what the caller saw playing). A no-op if playback has moved on by the time the
+     * mailbox gets to it, so two !skip commands for the same track advance once.
+     */
+    public void skip(QueueEntry expected) {
+        touch();
+        mailbox.execute(() -> {
+            if (nowPlaying.entry() != expected) {
+                logger.info("Skip of '{}' ignored; it is no longer playing.", expected.getDisplayTitle());
+                return;
             }
-        } else {
-            logger.warn("No track is currently playing to delete.");
-            return false;
-        }
+            nextTrack();
+        });
     }
 
-    // Plays the next track in the queue or stops playback if the queue is empty
-    public void nextTrack() {
-        // Save the current track file name for deletion
-        String previousTrackFileName = getCurrentTrackFileName();
+    // Plays the next track in the queue or stops playback if the queue is empty. Runs on the mailbox.
+    private void nextTrack() {
         String timestamp = getCurrentTimestamp();
-        logger.info("[" + timestamp + "] Moving to next track. Current track: " + (currentTrack != null ? currentTrack.getInfo().title : "None"));
+        QueueEntry currentEntry = nowPlaying.entry();
+        logger.info("[" + timestamp + "] Moving to next track. Current track: " + (currentEntry != null ? currentEntry.getDisplayTitle() : "None"));
 
-        // Poll the next track from the queue
-        currentTrack = queue.poll();
+        nowPlaying = NOTHING;
+        QueueEntry next = pollReadyHead();
 
-        if (currentTrack != null) {
-            player.startTrack(currentTrack, false);
-            logger.info("[" + timestamp + "] Started next track: " + currentTrack.getInfo().title);
-            sendNowPlaying(currentTrack);
+        if (next != null) {
+            play(next);
+        } else if (!queue.isEmpty()) {
+            // Next entry is still downloading — go quiet until onResolved starts it
+            player.stopTrack();
+            stalledSince = System.currentTimeMillis();
+            DownloadMetrics.recordDeadlineMiss();
+            logger.info("[" + timestamp + "] Next entry '{}' not downloaded yet; waiting.", queue.peek().getDisplayTitle());
         } else if (pendingDownloadCount.get() > 0) {
-            // Downloads still in flight — stay in the channel and wait
+            // Playlist still being expanded — stay in the channel and wait
+            player.stopTrack();
             logger.info("[" + timestamp + "] Scheduler queue empty but {} download(s) still pending; staying in channel.", pendingDownloadCount.get());
         } else {
             // Nothing queued and nothing downloading — leave
             logger.info("[" + timestamp + "] Queue empty, no pending downloads. Leaving voice channel.");
+            player.stopTrack();
             leaveVoiceChannel();
         }
 
-        // Delete the file for the previous track
-        if (previousTrackFileName != null) {
-            deleteFile(previousTrackFileName);
-        }
-    }
-
-    // Helper method to delete a file
-    private void deleteFile(String fileName) {
-        File file = new File(fileName);
-        if (file.exists() && file.isFile()) {
-            if (file.delete()) {
-                logger.info("Successfully deleted file: " + fileName);
-            } else {
-                logger.error("Failed to delete file: " + fileName);
-            }
-        } else {
-            logger.warn("File does not exist or is not a valid file: " + fileName);
-        }
-    }
+        // Slide the lookahead window forward
+        fillLookahead();
 
-    // Add a method to get the title
-    public String getTitle(String trackId) {
-        return trackTitles.get(trackId);
+        // The previous track is done with its file; other entries holding the same file keep it on disk
+        if (currentEntry != null) currentEntry.releaseFile();
     }
 
-    public void queueSong(File file, String title) {
-        playerManager.loadItem(file.getAbsolutePath(), new AudioLoadResultHandler() {
+    /**
+     * Called by the download job once an entry's file is on disk (or, for progressive downloads, once enough
+     * of it is), with a lease on that file that the entry takes over. Loads the track and starts it right away
+     * if the entry is at the head of an idle queue.
+     */
+    public void onResolved(QueueEntry entry, FileLeaseManager.Lease lease, boolean progressive) {
+        File file = lease.file();
+        String identifier = progressive ? ProgressiveAudioSourceManager.identifierFor(file) : file.getAbsolutePath();
+        entry.holdFile(lease);
+        playerManager.loadItem(identifier, new AudioLoadResultHandler() {
             @Override
             public void trackLoaded(AudioTrack track) {
                 track.setUserData(file.getAbsolutePath());
-                queue(track);
-                trackTitles.put(track.getIdentifier(), title.replace("ytsearch:", "").trim());
-                logger.info("Loaded and queued track: " + title);
-                decrementPendingDownloads(); // decrement only after track is actually queued
+                if (!entry.markReady(file, track)) {
+                    logger.info("Dropping resolved entry that was removed meanwhile: " + entry.getDisplayTitle());
+                    entry.releaseFile();
+                    return;
+                }
+                logger.info("Loaded track: " + entry.getDisplayTitle());
+                mailbox.execute(TrackScheduler.this::startNextIfIdle);
             }
 
             @Override
             public void playlistLoaded(AudioPlaylist playlist) {
                 logger.warn("Unexpected playlist loaded: " + playlist.getName());
-                decrementPendingDownloads();
+                onResolveFailed(entry);
             }
 
             @Override
             public void noMatches() {
                 logger.warn("No matches found for file: " + file.getAbsolutePath());
-                decrementPendingDownloads();
+                onResolveFailed(entry);
             }
 
             @Override
             public void loadFailed(FriendlyException exception) {
-                logger.error("Failed to load track: " + title, exception);
-                decrementPendingDownloads();
+                logger.error("Failed to load track: " + entry.getDisplayTitle(), exception);
+                onResolveFailed(entry);
+            }
+        });
+    }
+
+    // Called when an entry couldn't be downloaded or loaded; drops it and lets the next one in
+    public void onResolveFailed(QueueEntry entry) {
+        entry.markFailed();
+        mailbox.execute(() -> {
+            if (queue.remove(entry)) {
+                logger.warn("Removed unplayable entry from queue: " + entry.getDisplayTitle());
             }
+            startNextIfIdle();
+            fillLookahead();
         });
     }
 
-    // Called before a download is submitted so the scheduler knows a track is incoming
+    /**
+     * When the entry is expected to start playing, as epoch millis: what's left of the current track plus the
+     * durations of the entries ahead of it (ESTIMATED_TRACK_MS for ones not resolved yet). The download pool
+     * serves the earliest deadline first. Long.MAX_VALUE if the entry is no longer queued.
+     */
+    public long playbackDeadline(QueueEntry entry) {
+        long ahead = 0;
+        AudioTrack playing = player.getPlayingTrack();
+        if (playing != null) {
+            long duration = playing.getDuration();
+            ahead += duration > 0 && duration != Long.MAX_VALUE
+                    ? Math.max(0, duration - playing.getPosition())
+                    : ESTIMATED_TRACK_MS;
+        }
+        int position = queue.indexOf(entry);
+        if (position < 0) return Long.MAX_VALUE;
+        for (QueueEntry queued : queue.range(0, position)) {
+            if (queued.isCancelled() || queued.getState() == QueueEntry.State.FAILED) continue;
+            long duration = queued.getDurationMs();
+            ahead += duration > 0 ? duration : ESTIMATED_TRACK_MS;
+        }
+        return System.currentTimeMillis() + ahead;
+    }
+
+    // Called before work that will add entries later (e.g. playlist expansion) so the scheduler doesn't leave meanwhile
     public void incrementPendingDownloads() {
         pendingDownloadCount.incrementAndGet();
     }
 
-    // Called after a download completes (success or failure)
+    // Called once that work completes (success or failure)
     public void decrementPendingDownloads() {
+        touch();
         pendingDownloadCount.decrementAndGet();
     }
 
-    // Checks if the queue is empty, no track is playing, and no downloads are pending
+    // Checks if the queue is empty, no track is playing, and no playlist expansions are pending
     public boolean isQueueEmpty() {
         return queue.isEmpty() && player.getPlayingTrack() == null && pendingDownloadCount.get() == 0;
     }
 
-    // Deletes the file for the current track
-    private void deleteCurrentTrackFile() {
-        if (currentTrack != null) {
-            Object userData = currentTrack.getUserData();
-            if (userData instanceof String) {
-                String fileName = (String) userData;
-                deleteFile(fileName);
-            }
-            currentTrack = null;
-        }
+    public PlaybackQueue getQueue() {
+        return queue; // Expose the playback queue
     }
 
-    public LinkedBlockingQueue<AudioTrack> getQueue() {
-        return queue; // Expose the playback queue
+    // Removes the entry at position (0 = next up) and drops its download; completes with it
+    public CompletableFuture<QueueEntry> removeAt(int position) {
+        touch();
+        return mailbox.submit(() -> {
+            QueueEntry removed = queue.remove(position);
+            removed.cancel();
+            afterReorder();
+            return removed;
+        });
+    }
+
+    // Moves the entry at from to position to (both 0-based, in the queue as it is then); completes with it
+    public CompletableFuture<QueueEntry> move(int from, int to) {
+        touch();
+        return mailbox.submit(() -> {
+            QueueEntry moved = queue.move(from, to);
+            afterReorder();
+            return moved;
+        });
+    }
+
+    // Completes with the number of entries shuffled
+    public CompletableFuture<Integer> shuffle() {
+        touch();
+        return mailbox.submit(() -> {
+            queue.shuffle();
+            afterReorder();
+            return queue.size();
+        });
+    }
+
+    // Empties the queue but lets the current track finish; completes with how many entries were dropped
+    public CompletableFuture<Integer> clearQueue() {
+        touch();
+        return mailbox.submit(() -> {
+            List<QueueEntry> removed = queue.clear();
+            removed.forEach(QueueEntry::cancel);
+            return removed.size();
+        });
+    }
+
+    // A different entry may now be next, or within the lookahead window
+    private void afterReorder() {
+        startNextIfIdle();
+        fillLookahead();
+    }
+
+    // Lock-free snapshot of what's playing; entry and track always belong together
+    public NowPlaying getNowPlaying() {
+        return nowPlaying;
     }
 
     public AudioTrack getCurrentTrack() {
-        return currentTrack; // Expose the currently playing track
+        return nowPlaying.track(); // Expose the currently playing track
+    }
+
+    public QueueEntry getCurrentEntry() {
+        return nowPlaying.entry();
     }
 
-    // Clears the queue, stops playback, and leaves the voice channel
+    /**
+     * Clears the queue, stops playback, leaves the voice channel and then destroys the player. The scheduler
+     * is finished afterwards (see TrackSchedulerRegistry#remove); anything posted later finds an empty queue.
+     */
     public void clearQueueAndStop() {
-        // Stop the current track
-        player.stopTrack();
-        
-        // Clear the playback queue
-        queue.clear();
-        
-        // Reset the current track
-        currentTrack = null;
-        
-        // Perform any other necessary cleanup
-        leaveVoiceChannel();
+        mailbox.execute(() -> {
+            // Stop the current track
+            player.stopTrack();
+
+            // Clear the playback queue; downloads still in flight for these entries are dropped when they finish
+            queue.clear().forEach(QueueEntry::cancel);
+
+            // Reset the current track
+            QueueEntry current = nowPlaying.entry();
+            if (current != null) current.releaseFile();
+            nowPlaying = NOTHING;
+            stalledSince = 0;
+
+            // Perform any other necessary cleanup
+            leaveVoiceChannel();
+        });
+    }
+
+    // Destroys the player once everything already posted has run
+    void destroy() {
+        mailbox.execute(player::destroy);
     }
 
     // Disconnects the bot from the guild's voice channel
@@ -269,16 +400,20 @@ public class TrackScheduler implements com.sedmelluq.discord.lavaplayer.player.e
     // Handles events from the audio player
     @Override
     public void onEvent(com.sedmelluq.discord.lavaplayer.player.event.AudioEvent event) {
-        if (event instanceof com.sedmelluq.discord.lavaplayer.player.event.TrackEndEvent) {
-            AudioTrackEndReason reason = ((com.sedmelluq.discord.lavaplayer.player.event.TrackEndEvent) event).endReason;
-            if (reason.mayStartNext) {
-                // Advance to the next track when the current track ends
-                deleteCurrentTrackFile();
-                nextTrack();
-            } else if (isQueueEmpty()) {
-                // Leave the voice channel if the queue is empty
-                leaveVoiceChannel();
-            }
+        if (event instanceof com.sedmelluq.discord.lavaplayer.player.event.TrackEndEvent endEvent) {
+            touch(); // the idle clock starts when the last track ends
+            AudioTrackEndReason reason = endEvent.endReason;
+            mailbox.execute(() -> {
+                if (reason.mayStartNext) {
+                    // A !skip handled before this event already moved on; the ended track isn't current any more
+                    if (nowPlaying.track() != endEvent.track) return;
+                    // Advance to the next track when the current track ends; nextTrack releases its file
+                    nextTrack();
+                } else if (isQueueEmpty()) {
+                    // Leave the voice channel if the queue is empty
+                    leaveVoiceChannel();
+                }
+            });
         }
     }
 
@@ -2,22 +2,49 @@ package com.example.bot;
 
 import net.dv8tion.jda.api.entities.Guild;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.ConcurrentHashMap; // For thread-safe management of schedulers
-import com.sedmelluq.discord.lavaplayer.player.AudioPlayer; // For AudioPlayer
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-// Handles the creation and management of TrackSchedulers for multiple guilds
+/**
+ * Owns one TrackScheduler (and its AudioPlayer) per guild that is using music. Schedulers are only created by
+ * music commands, and a sweep every {@link #SWEEP_INTERVAL_SECONDS} seconds evicts those that have been idle —
+ * nothing playing, nothing queued, nothing downloading — for {@link ConfigUtils#playerIdleMs}, destroying their
+ * players. Memory therefore follows the guilds playing music, not the guilds the bot is in.
+ */
 public class TrackSchedulerRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(TrackSchedulerRegistry.class);
+    private static final long SWEEP_INTERVAL_SECONDS = 60;
+
     private final AudioPlayerManager playerManager; // Manages the audio players
     private final ConcurrentHashMap<Long, TrackScheduler> trackSchedulers = new ConcurrentHashMap<>(); // Map of guild IDs to their TrackSchedulers
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "player-idle-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
 
     // Constructor to initialize the registry with the player manager
     public TrackSchedulerRegistry(AudioPlayerManager playerManager) {
         this.playerManager = playerManager;
+        sweeper.scheduleWithFixedDelay(this::evictIdle, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
     }
 
-    public void reset() {
-        trackSchedulers.clear();
+    /**
+     * Drops one guild's scheduler (e.g. on !stop) so the next command starts from a fresh one.
+     * Other guilds' schedulers are left alone.
+     */
+    public void remove(Guild guild) {
+        TrackScheduler removed = trackSchedulers.remove(guild.getIdLong());
+        if (removed != null) release(guild, removed);
     }
 
     /**
@@ -28,16 +55,62 @@ public class TrackSchedulerRegistry {
     }
 
     /**
-     * Retrieves an existing TrackScheduler for a guild or creates a new one if it doesn't exist.
-     * The AudioPlayer is created internally only when a new scheduler is actually needed.
+     * Retrieves an existing TrackScheduler for a guild or creates a new one if it doesn't exist, and marks it
+     * active so the idle sweep leaves it alone. Only music commands that will use the player call this.
      *
      * @param guild The guild for which the scheduler is needed.
      * @param bot   The main bot instance.
      * @return The TrackScheduler for the given guild.
      */
     public TrackScheduler getOrCreate(Guild guild, Spotibot bot) {
-        return trackSchedulers.computeIfAbsent(guild.getIdLong(), guildId ->
-            new TrackScheduler(playerManager, playerManager.createPlayer(), bot, guild)
-        );
+        // compute() holds the entry's lock, so the sweep can't evict the scheduler between lookup and touch
+        return trackSchedulers.compute(guild.getIdLong(), (guildId, existing) -> {
+            TrackScheduler scheduler = existing;
+            if (scheduler == null) {
+                scheduler = new TrackScheduler(playerManager, playerManager.createPlayer(), bot, guild);
+                created.incrementAndGet();
+            }
+            scheduler.touch();
+            return scheduler;
+        });
+    }
+
+    // Evicts every scheduler that has been idle for ConfigUtils.playerIdleMs
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (Long guildId : trackSchedulers.keySet()) {
+            TrackScheduler[] removed = new TrackScheduler[1];
+            trackSchedulers.computeIfPresent(guildId, (id, scheduler) -> {
+                if (!scheduler.isIdle(now, ConfigUtils.playerIdleMs)) return scheduler;
+                removed[0] = scheduler;
+                return null;
+            });
+            if (removed[0] != null) {
+                evicted.incrementAndGet();
+                logger.info("Evicting idle player for guild {}.", guildId);
+                release(removed[0].getGuild(), removed[0]);
+            }
+        }
+    }
+
+    private void release(Guild guild, TrackScheduler scheduler) {
+        // Don't leave JDA polling a destroyed player
+        if (guild.getAudioManager().getSendingHandler() == scheduler.getSendHandler()) {
+            guild.getAudioManager().setSendingHandler(null);
+        }
+        scheduler.destroy();
+    }
+
+    public int getLiveCount() {
+        return trackSchedulers.size();
+    }
+
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    // Schedulers dropped by the idle sweep (not by !stop)
+    public long getEvictedCount() {
+        return evicted.get();
     }
 }
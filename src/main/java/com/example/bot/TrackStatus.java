@@ -0,0 +1,21 @@
+package com.example.bot;
+
+/**
+ * Where one queue entry reports its download state: its own status message for a single !play, or a shared
+ * summary for a bulk playlist import.
+ */
+public interface TrackStatus {
+    void downloading(YtDlpOutput.TrackInfo info);
+
+    void progress(YtDlpOutput.Progress progress);
+
+    // Queued for playback while the download continues
+    void streaming(long durationSeconds);
+
+    void queued(long durationSeconds);
+
+    void failed(String text);
+
+    // The entry was cancelled before it was resolved
+    void delete();
+}
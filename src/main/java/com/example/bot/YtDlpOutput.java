@@ -0,0 +1,93 @@
+package com.example.bot;
+
+import org.json.JSONObject;
+
+/**
+ * The machine-readable lines yt-dlp prints during a one-pass download (via --print before_dl and
+ * --progress-template) or a playlist expansion, and parsers that turn them — or the matching events from
+ * ytdlp_worker.py — into track info, progress updates and playlist entries.
+ */
+public final class YtDlpOutput {
+    // Unusual prefixes so yt-dlp's own log lines are never mistaken for ours
+    private static final String INFO_PREFIX = "[spotibot-info] ";
+    private static final String PROGRESS_PREFIX = "[spotibot-progress] ";
+    private static final String ENTRY_PREFIX = "[spotibot-entry] ";
+
+    // Printed once the format is picked, right before downloading; title goes last since it may contain '|'
+    public static final String INFO_TEMPLATE = INFO_PREFIX
+            + "%(id)s|%(duration)s|%(filesize,filesize_approx)s|%(title)s";
+    public static final String PROGRESS_TEMPLATE = PROGRESS_PREFIX
+            + "%(progress.downloaded_bytes)s|%(progress.total_bytes,progress.total_bytes_estimate)s"
+            + "|%(progress.speed)s|%(progress.eta)s";
+
+    // Printed for each entry of a --flat-playlist run, as soon as yt-dlp reads it
+    public static final String PLAYLIST_ENTRY_TEMPLATE = ENTRY_PREFIX
+            + "%(playlist_count)s|%(duration)s|%(webpage_url)s|%(title)s";
+
+    private YtDlpOutput() {}
+
+    // What a query resolved to; videoId is null if yt-dlp reported something that isn't a usable cache key
+    public record TrackInfo(String videoId, String title, long durationSeconds, long filesizeBytes) {}
+
+    // One progress report; totalBytes is 0 when yt-dlp doesn't know the size
+    public record Progress(long downloadedBytes, long totalBytes, double bytesPerSecond, long etaSeconds) {
+        // 0..1, or -1 if the total size is unknown
+        public double fraction() {
+            return totalBytes > 0 ? Math.min(1.0, (double) downloadedBytes / totalBytes) : -1;
+        }
+    }
+
+    // One playlist entry; playlistCount and durationSeconds are 0 when yt-dlp doesn't know them
+    public record PlaylistEntry(String url, String title, long durationSeconds, int playlistCount) {}
+
+    // Returns null if the line isn't a playlist entry line
+    public static PlaylistEntry parsePlaylistEntry(String line) {
+        if (!line.startsWith(ENTRY_PREFIX)) return null;
+        String[] parts = line.substring(ENTRY_PREFIX.length()).split("\\|", 4);
+        if (parts.length < 4 || !parts[2].startsWith("http")) return null;
+        String title = parts[3].trim();
+        return new PlaylistEntry(parts[2].trim(), title.equals("NA") ? null : title,
+                (long) number(parts[1]), (int) number(parts[0]));
+    }
+
+    // Returns null if the line isn't an info line
+    public static TrackInfo parseInfo(String line) {
+        if (!line.startsWith(INFO_PREFIX)) return null;
+        String[] parts = line.substring(INFO_PREFIX.length()).split("\\|", 4);
+        if (parts.length < 4) return null;
+        return new TrackInfo(videoId(parts[0]), parts[3].trim(), (long) number(parts[1]), (long) number(parts[2]));
+    }
+
+    // Returns null if the line isn't a progress line
+    public static Progress parseProgress(String line) {
+        if (!line.startsWith(PROGRESS_PREFIX)) return null;
+        String[] parts = line.substring(PROGRESS_PREFIX.length()).split("\\|");
+        if (parts.length < 4) return null;
+        return new Progress((long) number(parts[0]), (long) number(parts[1]), number(parts[2]), (long) number(parts[3]));
+    }
+
+    public static TrackInfo infoFromWorker(JSONObject event) {
+        return new TrackInfo(videoId(event.optString("video_id", "")), event.optString("title", ""),
+                (long) event.optDouble("duration", 0), event.optLong("filesize_approx", 0));
+    }
+
+    public static Progress progressFromWorker(JSONObject event) {
+        return new Progress(event.optLong("downloaded_bytes", 0), event.optLong("total_bytes", 0),
+                event.optDouble("speed", 0), event.optLong("eta", 0));
+    }
+
+    private static String videoId(String raw) {
+        String id = raw.trim();
+        return id.matches("[A-Za-z0-9_-]+") ? id : null;
+    }
+
+    // yt-dlp prints "NA" for missing fields; floats show up for sizes estimated from bitrate
+    private static double number(String raw) {
+        try {
+            double value = Double.parseDouble(raw.trim());
+            return Double.isFinite(value) && value > 0 ? value : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.bot;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Pool of long-lived yt-dlp worker processes (src/main/resources/ytdlp_worker.py) driven over a
+ * line-delimited JSON protocol, so the Python interpreter and yt-dlp are loaded once per worker instead of
+ * once per track. Workers are pinged after sitting idle, recycled after {@link ConfigUtils#ytdlpWorkerMaxJobs}
+ * requests, and if they can't be started callers get a {@link WorkerUnavailableException} and fall back to
+ * the one-shot yt-dlp process.
+ *
+ * <p>Set {@code ytdlp_worker_command} in config.json to run a different worker, e.g. a stub script that speaks
+ * the same protocol for local testing.
+ */
+public class YtDlpWorkerPool {
+    private static final Logger logger = LoggerFactory.getLogger(YtDlpWorkerPool.class);
+
+    private static final String SCRIPT_RESOURCE = "/ytdlp_worker.py";
+    private static final long STARTUP_TIMEOUT_MS = 30_000;
+    // Workers idle for longer than this are pinged before being handed out (package-private so tests can shorten it)
+    static long pingAfterIdleMs = 60_000;
+    private static final long PING_TIMEOUT_MS = 5_000;
+    private static final long BORROW_TIMEOUT_MS = 30_000;
+    // After a worker fails to start, use the one-shot path for this long before trying again
+    private static final long DISABLE_AFTER_FAILURE_MS = 5 * 60_000;
+
+    private static final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+    private static final AtomicInteger liveWorkers = new AtomicInteger();
+    private static final AtomicLong requestIds = new AtomicLong();
+    private static final AtomicLong recycled = new AtomicLong();
+    private static volatile long disabledUntil = 0;
+    // How long a recycled worker gets to exit on its own after stdin is closed
+    private static final long RETIRE_TIMEOUT_MS = 5_000;
+    private static File extractedScript;
+
+    // Thrown when no worker can serve the request; the caller should use the one-shot process instead
+    public static class WorkerUnavailableException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public WorkerUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Outcome of one request. {@code done} is the worker's final "done" message (null on timeout).
+     */
+    public record Result(boolean ok, boolean timedOut, JSONObject done) {
+        public String error() {
+            return done != null ? done.optString("error", "") : "timed out";
+        }
+    }
+
+    public static boolean isEnabled() {
+        return ConfigUtils.ytdlpWorkers > 0 && System.currentTimeMillis() >= disabledUntil;
+    }
+
+    /**
+     * Sends a request to an idle worker and blocks until its "done" message, passing every other event
+     * (info, progress) to onEvent. A request that runs past timeoutMs kills the worker and returns a timed-out result.
+     */
+    public static Result request(JSONObject request, Consumer<JSONObject> onEvent, long timeoutMs)
+            throws WorkerUnavailableException, InterruptedException {
+        Worker worker = borrow();
+        boolean reusable = false;
+        try {
+            Result result = worker.call(request, onEvent, timeoutMs);
+            reusable = !result.timedOut();
+            return result;
+        } catch (IOException e) {
+            // A cancelled job kills its worker; report that as the interruption it is, not as a broken worker
+            if (Thread.currentThread().isInterrupted()) throw new InterruptedException("yt-dlp request cancelled");
+            throw new WorkerUnavailableException("yt-dlp worker died mid-request: " + e.getMessage());
+        } finally {
+            release(worker, reusable);
+        }
+    }
+
+    private static Worker borrow() throws WorkerUnavailableException, InterruptedException {
+        long giveUpAt = System.currentTimeMillis() + BORROW_TIMEOUT_MS;
+        while (true) {
+            Worker worker = idleWorkers.poll();
+            if (worker == null) {
+                if (liveWorkers.incrementAndGet() <= ConfigUtils.ytdlpWorkers) {
+                    try {
+                        return Worker.start();
+                    } catch (IOException e) {
+                        liveWorkers.decrementAndGet();
+                        disabledUntil = System.currentTimeMillis() + DISABLE_AFTER_FAILURE_MS;
+                        logger.warn("Could not start yt-dlp worker ({}); using one-shot yt-dlp for the next {} min.",
+                                e.getMessage(), DISABLE_AFTER_FAILURE_MS / 60_000);
+                        throw new WorkerUnavailableException(e.getMessage());
+                    }
+                }
+                liveWorkers.decrementAndGet();
+                long wait = giveUpAt - System.currentTimeMillis();
+                worker = wait > 0 ? idleWorkers.poll(wait, TimeUnit.MILLISECONDS) : null;
+                if (worker == null) throw new WorkerUnavailableException("no yt-dlp worker free");
+            }
+
+            // Health check: dead, or idle long enough that it might be wedged
+            boolean healthy = worker.isAlive()
+                    && (System.currentTimeMillis() - worker.lastUsed < pingAfterIdleMs || worker.ping());
+            if (healthy) return worker;
+            logger.info("Replacing unhealthy yt-dlp worker #{}.", worker.number);
+            worker.destroy();
+            liveWorkers.decrementAndGet();
+        }
+    }
+
+    private static void release(Worker worker, boolean reusable) {
+        worker.jobs++;
+        worker.lastUsed = System.currentTimeMillis();
+        if (reusable && worker.isAlive() && worker.jobs < ConfigUtils.ytdlpWorkerMaxJobs) {
+            idleWorkers.offer(worker);
+            return;
+        }
+        if (reusable) {
+            recycled.incrementAndGet();
+            logger.info("Recycling yt-dlp worker #{} after {} job(s).", worker.number, worker.jobs);
+            worker.retire();
+        } else {
+            worker.destroy();
+        }
+        liveWorkers.decrementAndGet();
+    }
+
+    private static synchronized List<String> workerCommand() throws IOException {
+        if (!ConfigUtils.ytdlpWorkerCommand.isEmpty()) return ConfigUtils.ytdlpWorkerCommand;
+        if (extractedScript == null || !extractedScript.exists()) {
+            File script = File.createTempFile("spotibot-ytdlp-worker-", ".py");
+            script.deleteOnExit();
+            try (InputStream in = YtDlpWorkerPool.class.getResourceAsStream(SCRIPT_RESOURCE)) {
+                if (in == null) throw new IOException("missing resource " + SCRIPT_RESOURCE);
+                Files.copy(in, script.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            extractedScript = script;
+        }
+        String python = System.getProperty("os.name", "").toLowerCase().contains("win") ? "python" : "python3";
+        return List.of(python, "-u", extractedScript.getAbsolutePath());
+    }
+
+    // Kills the idle workers and lifts a startup-failure back-off, so the next request starts fresh; for tests
+    static void reset() {
+        Worker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.destroy();
+            liveWorkers.decrementAndGet();
+        }
+        disabledUntil = 0;
+    }
+
+    public static int getLiveWorkers() {
+        return liveWorkers.get();
+    }
+
+    public static int getIdleWorkers() {
+        return idleWorkers.size();
+    }
+
+    public static long getRecycledWorkers() {
+        return recycled.get();
+    }
+
+    // One worker process; only ever used by one thread at a time (whoever borrowed it)
+    private static final class Worker {
+        private static final AtomicInteger counter = new AtomicInteger();
+
+        final int number;
+        final ProcessRunner.Handle process;
+        final BufferedReader stdout;
+        final BufferedWriter stdin;
+        int jobs = 0;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        private Worker(int number, ProcessRunner.Handle process) {
+            this.number = number;
+            this.process = process;
+            this.stdout = new BufferedReader(new InputStreamReader(process.process().getInputStream(), StandardCharsets.UTF_8));
+            this.stdin = new BufferedWriter(new OutputStreamWriter(process.process().getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        static Worker start() throws IOException {
+            int number = counter.incrementAndGet();
+            // stdout carries the protocol and is read by call(); stderr is yt-dlp's own log output
+            ProcessRunner.Handle process = ProcessRunner.start("ytdlp-worker-" + number, workerCommand(),
+                    STARTUP_TIMEOUT_MS, null, line -> logger.info("[yt-dlp worker #{}] {}", number, line));
+            Worker worker = new Worker(number, process);
+            try {
+                String line = worker.stdout.readLine();
+                JSONObject ready = line != null ? new JSONObject(line) : null;
+                if (ready == null || !"ready".equals(ready.optString("event"))) {
+                    worker.destroy();
+                    throw new IOException(ready != null ? ready.optString("error", line) : "worker exited during startup");
+                }
+                logger.info("Started yt-dlp worker #{} (yt-dlp {}).", worker.number, ready.optString("version", "?"));
+                process.armDeadline(0);
+                return worker;
+            } catch (JSONException e) {
+                worker.destroy();
+                throw new IOException("worker sent invalid startup line: " + e.getMessage());
+            }
+        }
+
+        boolean isAlive() {
+            return process.isAlive();
+        }
+
+        boolean ping() {
+            try {
+                return call(new JSONObject().put("op", "ping"), e -> {}, PING_TIMEOUT_MS).ok();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        Result call(JSONObject request, Consumer<JSONObject> onEvent, long timeoutMs) throws IOException {
+            long id = requestIds.incrementAndGet();
+            request.put("id", id);
+
+            // The borrowing thread owns the process for this request, so cancelling its job kills the worker
+            process.setOwner(Thread.currentThread());
+            process.armDeadline(timeoutMs);
+            try {
+                stdin.write(request.toString());
+                stdin.newLine();
+                stdin.flush();
+
+                String line;
+                while ((line = stdout.readLine()) != null) {
+                    JSONObject message;
+                    try {
+                        message = new JSONObject(line);
+                    } catch (JSONException e) {
+                        logger.warn("[yt-dlp worker #{}] ignoring non-JSON output: {}", number, line);
+                        continue;
+                    }
+                    if (message.optLong("id", -1) != id) continue; // leftover from a request that timed out
+                    if ("done".equals(message.optString("event"))) {
+                        return new Result(message.optBoolean("ok", false), false, message);
+                    }
+                    onEvent.accept(message);
+                }
+            } catch (IOException e) {
+                if (!process.timedOut()) throw e;
+            } finally {
+                process.armDeadline(0);
+                process.setOwner(null);
+            }
+            if (process.timedOut()) return new Result(false, true, null);
+            throw new IOException("worker #" + number + " exited");
+        }
+
+        void destroy() {
+            process.kill();
+        }
+
+        // Closes stdin so the worker's read loop ends and it exits on its own; killed if it hasn't after a few seconds
+        void retire() {
+            try {
+                stdin.close();
+            } catch (IOException e) {
+                destroy();
+                return;
+            }
+            process.armDeadline(RETIRE_TIMEOUT_MS);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+#!/usr/bin/env python3
+"""Long-lived yt-dlp worker used by Spotibot's YtDlpWorkerPool.
+
+Reads one JSON request per line on stdin and answers with JSON lines on stdout, so the Python
+interpreter and yt-dlp are loaded once instead of once per track. yt-dlp's own logging goes to
+stderr; stdout carries protocol messages only.
+
+  {"id": 1, "op": "ping"}
+  {"id": 2, "op": "metadata", "query": "ytsearch:...", "format": "bestaudio/best"}
+  {"id": 3, "op": "download", "query": "...", "output": "/path/file.webm", "format": "...",
+   "cookies": "/path/cookies.txt", "no_part": true, "js_runtimes": ["deno"]}
+
+On startup the worker prints {"event": "ready"}. Every request ends with
+{"id": N, "event": "done", "ok": true|false, ...}; downloads emit "info" and "progress" events first.
+"""
+import json
+import shutil
+import sys
+
+try:
+    import yt_dlp
+except ImportError:
+    # The release binary of yt-dlp is a zipapp, which Python can import from directly
+    binary = shutil.which("yt-dlp")
+    if binary:
+        sys.path.insert(0, binary)
+    try:
+        import yt_dlp
+    except ImportError as e:
+        print(json.dumps({"event": "fatal", "error": "cannot import yt_dlp: %s" % e}), flush=True)
+        sys.exit(1)
+
+
+def emit(message):
+    sys.stdout.write(json.dumps(message) + "\n")
+    sys.stdout.flush()
+
+
+class StderrLogger:
+    def debug(self, msg):
+        if not msg.startswith("[debug] "):
+            print(msg, file=sys.stderr, flush=True)
+
+    def info(self, msg):
+        print(msg, file=sys.stderr, flush=True)
+
+    def warning(self, msg):
+        print(msg, file=sys.stderr, flush=True)
+
+    def error(self, msg):
+        print(msg, file=sys.stderr, flush=True)
+
+
+def base_options(req):
+    # Mirrors the command-line flags of the one-shot path: -4 --no-playlist -f ... --cookies ...
+    opts = {
+        "quiet": True,
+        "no_warnings": True,
+        "noprogress": True,
+        "logger": StderrLogger(),
+        "noplaylist": True,
+        "source_address": "0.0.0.0",
+        "format": req.get("format") or "bestaudio/best",
+    }
+    if req.get("js_runtimes"):
+        opts["js_runtimes"] = {name: {} for name in req["js_runtimes"]}
+    if req.get("cookies"):
+        opts["cookiefile"] = req["cookies"]
+    return opts
+
+
+def summarize(info):
+    # ytsearch: results come back as a one-entry playlist
+    if info and info.get("_type") == "playlist" and info.get("entries"):
+        info = info["entries"][0]
+    info = info or {}
+    return {
+        "video_id": info.get("id"),
+        "title": info.get("title"),
+        "duration": info.get("duration") or 0,
+        "filesize_approx": info.get("filesize") or info.get("filesize_approx") or 0,
+    }
+
+
+def metadata(req):
+    with yt_dlp.YoutubeDL(base_options(req)) as ydl:
+        return summarize(ydl.extract_info(req["query"], download=False))
+
+
+def download(req):
+    rid = req.get("id")
+
+    def progress_hook(d):
+        if d.get("status") == "downloading":
+            emit({
+                "id": rid,
+                "event": "progress",
+                "downloaded_bytes": d.get("downloaded_bytes") or 0,
+                "total_bytes": d.get("total_bytes") or d.get("total_bytes_estimate") or 0,
+                "speed": d.get("speed") or 0,
+                "eta": d.get("eta") or 0,
+            })
+
+    opts = base_options(req)
+    opts["outtmpl"] = {"default": req["output"]}
+    opts["nopart"] = bool(req.get("no_part"))
+    opts["progress_hooks"] = [progress_hook]
+    with yt_dlp.YoutubeDL(opts) as ydl:
+        info = ydl.extract_info(req["query"], download=False)
+        summary = summarize(info)
+        emit(dict(summary, id=rid, event="info"))
+        ydl.process_ie_result(info, download=True)
+        return summary
+
+
+def main():
+    emit({"event": "ready", "version": yt_dlp.version.__version__})
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        try:
+            req = json.loads(line)
+        except ValueError as e:
+            emit({"event": "done", "ok": False, "error": "bad request: %s" % e})
+            continue
+
+        rid = req.get("id")
+        op = req.get("op")
+        try:
+            if op == "ping":
+                emit({"id": rid, "event": "done", "ok": True})
+            elif op == "metadata":
+                emit(dict(metadata(req), id=rid, event="done", ok=True))
+            elif op == "download":
+                emit(dict(download(req), id=rid, event="done", ok=True))
+            else:
+                emit({"id": rid, "event": "done", "ok": False, "error": "unknown op: %s" % op})
+        except Exception as e:  # yt-dlp raises DownloadError and friends; keep the worker alive
+            emit({"id": rid, "event": "done", "ok": False, "error": str(e)})
+
+
+if __name__ == "__main__":
+    main()
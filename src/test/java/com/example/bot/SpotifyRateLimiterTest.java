@@ -0,0 +1,167 @@
+package com.example.bot;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sends requests through SpotifyUtils.sendWithRetry to a local HTTP server that answers from a script
+ * (429 with Retry-After, 5xx, 200), and checks the waits, retries and counters of {@link SpotifyRateLimiter}.
+ */
+class SpotifyRateLimiterTest {
+    private static final long TIMEOUT_SECONDS = 20;
+
+    // One scripted answer; retryAfter is sent as the Retry-After header when not null
+    private record Reply(int code, String retryAfter) {}
+
+    private HttpServer server;
+    private final Deque<Reply> script = new ArrayDeque<>();
+    private Reply fallback = new Reply(200, null);
+    private final List<Long> arrivals = Collections.synchronizedList(new ArrayList<>());
+    private double savedRate;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        savedRate = ConfigUtils.spotifyRequestsPerSecond;
+        ConfigUtils.spotifyRequestsPerSecond = 50;
+        SpotifyRateLimiter.reset(10);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            arrivals.add(System.currentTimeMillis());
+            Reply reply;
+            synchronized (script) {
+                reply = script.isEmpty() ? fallback : script.poll();
+            }
+            if (reply.retryAfter() != null) exchange.getResponseHeaders().add("Retry-After", reply.retryAfter());
+            byte[] body = ("HTTP " + reply.code()).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(reply.code(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        ConfigUtils.spotifyRequestsPerSecond = savedRate;
+        SpotifyRateLimiter.reset(10);
+    }
+
+    @Test
+    void retriesThrough429And5xxUntilSuccess() throws Exception {
+        script.add(new Reply(429, "1"));
+        script.add(new Reply(503, null));
+        script.add(new Reply(200, null));
+        long throttled = SpotifyRateLimiter.getThrottled();
+        long retried = SpotifyRateLimiter.getRetried();
+
+        try (Response response = send()) {
+            assertEquals(200, response.code());
+        }
+
+        assertEquals(3, arrivals.size());
+        // The retry after the 429 waited out its Retry-After
+        assertTrue(arrivals.get(1) - arrivals.get(0) >= 1000, "retried " + (arrivals.get(1) - arrivals.get(0)) + " ms after the 429");
+        assertEquals(throttled + 1, SpotifyRateLimiter.getThrottled());
+        assertEquals(retried + 2, SpotifyRateLimiter.getRetried());
+    }
+
+    @Test
+    void retryAfterHoldsBackOtherRequests() throws Exception {
+        script.add(new Reply(429, "1"));
+        long throttled = SpotifyRateLimiter.getThrottled();
+
+        CompletableFuture<Response> first = SpotifyUtils.sendWithRetry(request());
+        while (SpotifyRateLimiter.getThrottled() == throttled) Thread.sleep(5);
+        try (Response second = send()) {
+            assertEquals(200, second.code());
+        }
+        try (Response response = first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            assertEquals(200, response.code());
+        }
+
+        // Neither the retry nor the unrelated request went out before the pause ended
+        assertEquals(3, arrivals.size());
+        assertTrue(arrivals.get(1) - arrivals.get(0) >= 1000);
+        assertTrue(arrivals.get(2) - arrivals.get(0) >= 1000);
+    }
+
+    @Test
+    void stopsRetryingWhenTheBudgetIsSpent() throws Exception {
+        fallback = new Reply(503, null);
+        SpotifyRateLimiter.reset(1); // the request earns 0.2 more: enough for one retry, not two
+        long retried = SpotifyRateLimiter.getRetried();
+        long exhausted = SpotifyRateLimiter.getBudgetExhausted();
+
+        try (Response response = send()) {
+            assertEquals(503, response.code()); // the last response is handed back as is
+        }
+
+        assertEquals(2, arrivals.size());
+        assertEquals(retried + 1, SpotifyRateLimiter.getRetried());
+        assertEquals(exhausted + 1, SpotifyRateLimiter.getBudgetExhausted());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() throws Exception {
+        fallback = new Reply(500, null);
+        long retried = SpotifyRateLimiter.getRetried();
+
+        try (Response response = send()) {
+            assertEquals(500, response.code());
+        }
+
+        assertEquals(SpotifyRateLimiter.MAX_ATTEMPTS, arrivals.size());
+        assertEquals(retried + SpotifyRateLimiter.MAX_ATTEMPTS - 1, SpotifyRateLimiter.getRetried());
+    }
+
+    @Test
+    void bucketSpacesOutBursts() throws Exception {
+        ConfigUtils.spotifyRequestsPerSecond = 2; // bursts of 4, then one every 500 ms
+        SpotifyRateLimiter.reset(10);
+        long delayed = SpotifyRateLimiter.getDelayed();
+
+        List<CompletableFuture<Response>> responses = new ArrayList<>();
+        for (int i = 0; i < 6; i++) responses.add(SpotifyUtils.sendWithRetry(request()));
+        for (CompletableFuture<Response> response : responses) {
+            try (Response r = response.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                assertEquals(200, r.code());
+            }
+        }
+
+        List<Long> sorted = new ArrayList<>(arrivals);
+        Collections.sort(sorted);
+        assertTrue(sorted.get(5) - sorted.get(0) >= 900, "6 requests spread over " + (sorted.get(5) - sorted.get(0)) + " ms");
+        assertEquals(delayed + 2, SpotifyRateLimiter.getDelayed());
+    }
+
+    private Response send() throws Exception {
+        return SpotifyUtils.sendWithRetry(request()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private Request request() {
+        return new Request.Builder().url("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/me").get().build();
+    }
+}
@@ -0,0 +1,443 @@
+package com.example.bot;
+
+import com.sedmelluq.discord.lavaplayer.filter.PcmFilterFactory;
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.player.event.AudioEventListener;
+import com.sedmelluq.discord.lavaplayer.player.event.TrackEndEvent;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
+import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrame;
+import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.managers.AudioManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Hammers one TrackScheduler with skip/queue/stop from many threads at once, the way JDA events, lavaplayer's
+ * playback thread and download workers do, and checks the invariants the guild mailbox is there to keep: a
+ * track is advanced past once however many skips race for it, the playing entry is never also in the queue,
+ * no entry plays twice, and every file lease is released once playback has stopped.
+ */
+class TrackSchedulerStressTest {
+    private static final int SHARED_FILES = 8; // entries share files, so leases are reference counted
+
+    @TempDir
+    File dir;
+
+    private StubPlayer player;
+    private TrackScheduler scheduler;
+    private ExecutorService downloads;
+    private final AtomicInteger entryCounter = new AtomicInteger();
+    private volatile int failurePercent = 0;
+    private int savedLookahead;
+
+    @BeforeEach
+    void createScheduler() {
+        savedLookahead = ConfigUtils.lookaheadTracks;
+        ConfigUtils.lookaheadTracks = 3;
+        player = new StubPlayer();
+        scheduler = new TrackScheduler(stubPlayerManager(), player, null, stubGuild());
+        downloads = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void shutDown() throws Exception {
+        // Leases are process-wide; stop this scheduler so nothing it held leaks into the next test
+        stopAndSettle();
+        ConfigUtils.lookaheadTracks = savedLookahead;
+    }
+
+    @Test
+    void racingSkipsAndTrackEndAdvanceOnce() throws Exception {
+        for (int i = 0; i < 40; i++) scheduler.enqueue(newEntry());
+        await(() -> scheduler.getCurrentEntry() != null, "first track to start");
+
+        for (int round = 0; round < 25; round++) {
+            QueueEntry current = scheduler.getCurrentEntry();
+            AudioTrack currentTrack = scheduler.getCurrentTrack();
+            QueueEntry next = scheduler.getQueue().peek();
+            await(() -> next.getState() == QueueEntry.State.READY, "next entry to resolve");
+            int startedBefore = player.started.size();
+
+            // 16 !skip commands for the same track, and on odd rounds the track ending on its own as well
+            boolean trackEnds = round % 2 == 1;
+            runConcurrently(16 + (trackEnds ? 1 : 0), i -> {
+                if (i == 16) player.finish(currentTrack);
+                else scheduler.skip(current);
+            });
+            await(() -> scheduler.getCurrentEntry() == next, "playback to move to the next entry");
+            drainMailbox();
+
+            assertEquals(startedBefore + 1, player.started.size(), "round " + round + " advanced more than once");
+            assertSame(next, scheduler.getCurrentEntry());
+        }
+        assertNoTrackStartedTwice();
+    }
+
+    @Test
+    void concurrentCommandsKeepInvariants() throws Exception {
+        failurePercent = 10;
+        for (int i = 0; i < 10; i++) scheduler.enqueue(newEntry());
+
+        // Samples the scheduler from outside while it is being hammered, as !queue and !np do
+        Queue<String> violations = new ConcurrentLinkedQueue<>();
+        AtomicBoolean hammering = new AtomicBoolean(true);
+        Thread monitor = new Thread(() -> {
+            while (hammering.get()) {
+                TrackScheduler.NowPlaying now = scheduler.getNowPlaying();
+                if (now.entry() == null) continue;
+                if (scheduler.getQueue().indexOf(now.entry()) >= 0) {
+                    violations.add("playing entry is also queued: " + now.entry().getDisplayTitle());
+                }
+                if (now.track() != now.entry().getTrack()) {
+                    violations.add("now playing pairs an entry with another entry's track");
+                }
+            }
+        }, "stress-monitor");
+        monitor.start();
+
+        runConcurrently(8, thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int op = 0; op < 2_000; op++) {
+                int roll = random.nextInt(100);
+                int size = scheduler.getQueue().size();
+                if (roll < 35) {
+                    scheduler.enqueue(newEntry());
+                } else if (roll < 55) {
+                    QueueEntry current = scheduler.getCurrentEntry();
+                    if (current != null) scheduler.skip(current);
+                } else if (roll < 65) {
+                    player.finish(player.getPlayingTrack());
+                } else if (roll < 75) {
+                    // Positions go stale while the command is in flight; out-of-range ones fail, as they do for !remove
+                    scheduler.removeAt(random.nextInt(Math.max(1, size)));
+                } else if (roll < 85) {
+                    scheduler.move(random.nextInt(Math.max(1, size)), random.nextInt(Math.max(1, size)));
+                } else if (roll < 90) {
+                    scheduler.shuffle();
+                } else if (roll < 94) {
+                    scheduler.clearQueue();
+                } else if (roll < 96) {
+                    scheduler.clearQueueAndStop();
+                } else {
+                    Thread.yield();
+                }
+            }
+        });
+
+        hammering.set(false);
+        monitor.join();
+        assertTrue(violations.isEmpty(), () -> violations.size() + " violation(s), e.g. " + violations.peek());
+        assertNoTrackStartedTwice();
+
+        // !stop, then let the downloads still in flight finish: nothing may keep a file leased afterwards
+        stopAndSettle();
+
+        assertNull(scheduler.getCurrentEntry());
+        assertNull(player.getPlayingTrack());
+        assertTrue(scheduler.getQueue().isEmpty());
+        assertEquals(0, leasedFiles(), "files still leased after !stop");
+    }
+
+    @Test
+    void stopReleasesEveryLease() throws Exception {
+        for (int i = 0; i < 30; i++) scheduler.enqueue(newEntry());
+        await(() -> scheduler.getCurrentEntry() != null, "first track to start");
+        await(() -> leasedFiles() > 1, "lookahead entries to lease their files");
+
+        stopAndSettle();
+
+        assertEquals(0, leasedFiles());
+    }
+
+    // A queue entry whose "download" finishes on another thread, like DownloadQueueHandler's pool jobs
+    private QueueEntry newEntry() {
+        int n = entryCounter.incrementAndGet();
+        File file = new File(dir, "track-" + (n % SHARED_FILES) + ".webm");
+        return new QueueEntry("query " + n, "Track " + n, entry -> downloads.execute(() -> {
+            if (ThreadLocalRandom.current().nextInt(100) < failurePercent) {
+                scheduler.onResolveFailed(entry);
+            } else {
+                scheduler.onResolved(entry, FileLeaseManager.acquire(file), false);
+            }
+        }));
+    }
+
+    /**
+     * !stop, then waits for everything it leaves behind: the commands still queued on the mailbox (which may
+     * start lookahead downloads, so they run before the download pool shuts down), the downloads in flight,
+     * and the mailbox tasks those post.
+     */
+    private void stopAndSettle() throws Exception {
+        scheduler.clearQueueAndStop();
+        drainMailbox();
+        downloads.shutdown();
+        assertTrue(downloads.awaitTermination(10, TimeUnit.SECONDS));
+        drainMailbox();
+    }
+
+    // How many of this test's files are still leased
+    private long leasedFiles() {
+        return IntStream.range(0, SHARED_FILES)
+                .filter(i -> FileLeaseManager.isLeased(new File(dir, "track-" + i + ".webm")))
+                .count();
+    }
+
+    // Everything posted to the mailbox before this has run once it returns (tasks run in order; these tests don't mind the shuffle)
+    private void drainMailbox() throws Exception {
+        scheduler.shuffle().get(10, TimeUnit.SECONDS);
+    }
+
+    private void assertNoTrackStartedTwice() {
+        List<AudioTrack> started;
+        synchronized (player.started) {
+            started = new ArrayList<>(player.started);
+        }
+        assertEquals(started.size(), new HashSet<>(started).size(), "an entry was played twice");
+    }
+
+    private interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    // Starts the tasks on their own threads at the same moment and waits for all of them
+    private static void runConcurrently(int threads, Task task) throws Exception {
+        CountDownLatch go = new CountDownLatch(1);
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            CompletableFuture<Void> finished = new CompletableFuture<>();
+            done.add(finished);
+            new Thread(() -> {
+                try {
+                    go.await();
+                    task.run(thread);
+                    finished.complete(null);
+                } catch (Throwable e) {
+                    finished.completeExceptionally(e);
+                }
+            }, "stress-" + i).start();
+        }
+        go.countDown();
+        CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+    }
+
+    private static void await(BooleanSupplier condition, String what) throws InterruptedException {
+        long giveUpAt = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > giveUpAt) fail("timed out waiting for " + what);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Stand-in for lavaplayer's player: remembers what is playing and fires the TrackEndEvents lavaplayer would
+     * (REPLACED, STOPPED, and FINISHED from {@link #finish}, which plays the part of the playback thread).
+     */
+    static final class StubPlayer implements AudioPlayer {
+        final List<AudioTrack> started = Collections.synchronizedList(new ArrayList<>());
+        private final List<AudioEventListener> listeners = new CopyOnWriteArrayList<>();
+        private AudioTrack playing; // guarded by this
+
+        @Override
+        public synchronized AudioTrack getPlayingTrack() {
+            return playing;
+        }
+
+        @Override
+        public void playTrack(AudioTrack track) {
+            startTrack(track, false);
+        }
+
+        @Override
+        public boolean startTrack(AudioTrack track, boolean noInterrupt) {
+            AudioTrack previous;
+            synchronized (this) {
+                if (noInterrupt && playing != null) return false;
+                previous = playing;
+                playing = track;
+                if (track != null) started.add(track);
+            }
+            if (previous != null) fire(previous, track != null ? AudioTrackEndReason.REPLACED : AudioTrackEndReason.STOPPED);
+            return track != null;
+        }
+
+        @Override
+        public void stopTrack() {
+            startTrack(null, false);
+        }
+
+        // The track ran out, unless a skip replaced it first: lavaplayer clears it, then tells the listeners
+        void finish(AudioTrack track) {
+            synchronized (this) {
+                if (track == null || playing != track) return;
+                playing = null;
+            }
+            fire(track, AudioTrackEndReason.FINISHED);
+        }
+
+        private void fire(AudioTrack track, AudioTrackEndReason reason) {
+            TrackEndEvent event = new TrackEndEvent(this, track, reason);
+            listeners.forEach(l -> l.onEvent(event));
+        }
+
+        @Override
+        public void addListener(AudioEventListener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void removeListener(AudioEventListener listener) {
+            listeners.remove(listener);
+        }
+
+        @Override
+        public int getVolume() {
+            return 100;
+        }
+
+        @Override
+        public void setVolume(int volume) {
+        }
+
+        @Override
+        public void setFilterFactory(PcmFilterFactory factory) {
+        }
+
+        @Override
+        public void setFrameBufferDuration(Integer duration) {
+        }
+
+        @Override
+        public boolean isPaused() {
+            return false;
+        }
+
+        @Override
+        public void setPaused(boolean value) {
+        }
+
+        @Override
+        public void destroy() {
+            stopTrack();
+        }
+
+        @Override
+        public void checkCleanup(long threshold) {
+        }
+
+        @Override
+        public AudioFrame provide() {
+            return null;
+        }
+
+        @Override
+        public AudioFrame provide(long timeout, TimeUnit unit) {
+            return null;
+        }
+
+        @Override
+        public boolean provide(MutableAudioFrame targetFrame) {
+            return false;
+        }
+
+        @Override
+        public boolean provide(MutableAudioFrame targetFrame, long timeout, TimeUnit unit) {
+            return false;
+        }
+    }
+
+    // Loads every identifier straight away as a fresh three-minute track
+    private static AudioPlayerManager stubPlayerManager() {
+        return stub(AudioPlayerManager.class, (method, args) -> {
+            if (method.equals("loadItem") && args.length == 2 && args[1] instanceof AudioLoadResultHandler handler) {
+                handler.trackLoaded(stubTrack((String) args[0]));
+                return CompletableFuture.completedFuture(null);
+            }
+            return null;
+        });
+    }
+
+    private static AudioTrack stubTrack(String identifier) {
+        return stub(AudioTrack.class, (method, args) -> switch (method) {
+            case "getIdentifier", "toString" -> identifier;
+            case "getDuration" -> 180_000L;
+            default -> null;
+        });
+    }
+
+    private static Guild stubGuild() {
+        AudioManager audioManager = stub(AudioManager.class, (method, args) -> null);
+        return stub(Guild.class, (method, args) -> switch (method) {
+            case "getId" -> "42";
+            case "getIdLong" -> 42L;
+            case "getAudioManager" -> audioManager;
+            default -> null;
+        });
+    }
+
+    private interface StubMethod {
+        Object invoke(String method, Object[] args) throws Exception;
+    }
+
+    // Interface stub answering through body; identity equality, and zero/false/null for anything body leaves out
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, StubMethod body) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            Object[] actual = args != null ? args : new Object[0];
+            switch (method.getName()) {
+                case "equals":
+                    if (actual.length == 1) return proxy == actual[0];
+                    break;
+                case "hashCode":
+                    if (actual.length == 0) return System.identityHashCode(proxy);
+                    break;
+                default:
+                    break;
+            }
+            Object result = body.invoke(method.getName(), actual);
+            if (result != null || !method.getReturnType().isPrimitive()) return result;
+            Class<?> r = method.getReturnType();
+            if (r == boolean.class) return false;
+            if (r == void.class) return null;
+            if (r == long.class) return 0L;
+            if (r == int.class) return 0;
+            if (r == double.class) return 0.0;
+            if (r == float.class) return 0f;
+            if (r == short.class) return (short) 0;
+            if (r == byte.class) return (byte) 0;
+            return '\0';
+        });
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.bot;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives YtDlpWorkerPool against src/test/resources/stub_ytdlp_worker.py, which speaks the worker protocol
+ * without yt-dlp. Every reply carries the stub's pid, so the tests can tell when a worker was reused or replaced.
+ */
+class YtDlpWorkerPoolTest {
+    private static final long TIMEOUT_MS = 10_000;
+
+    private int savedWorkers;
+    private int savedMaxJobs;
+    private List<String> savedCommand;
+
+    @BeforeEach
+    void useStubWorker() throws URISyntaxException {
+        savedWorkers = ConfigUtils.ytdlpWorkers;
+        savedMaxJobs = ConfigUtils.ytdlpWorkerMaxJobs;
+        savedCommand = ConfigUtils.ytdlpWorkerCommand;
+        ConfigUtils.ytdlpWorkers = 2;
+        ConfigUtils.ytdlpWorkerMaxJobs = 50;
+        ConfigUtils.ytdlpWorkerCommand = List.of("python3", "-u", stubScript());
+        YtDlpWorkerPool.pingAfterIdleMs = 60_000;
+        YtDlpWorkerPool.reset();
+    }
+
+    @AfterEach
+    void restoreConfig() {
+        YtDlpWorkerPool.reset();
+        YtDlpWorkerPool.pingAfterIdleMs = 60_000;
+        ConfigUtils.ytdlpWorkers = savedWorkers;
+        ConfigUtils.ytdlpWorkerMaxJobs = savedMaxJobs;
+        ConfigUtils.ytdlpWorkerCommand = savedCommand;
+    }
+
+    @Test
+    void reusesAnIdleWorker() throws Exception {
+        YtDlpWorkerPool.Result first = metadata("first song");
+        YtDlpWorkerPool.Result second = metadata("second song");
+
+        assertTrue(first.ok());
+        assertEquals("Stub: first song", first.done().getString("title"));
+        assertEquals(pid(first), pid(second));
+        assertEquals(1, YtDlpWorkerPool.getLiveWorkers());
+        assertEquals(1, YtDlpWorkerPool.getIdleWorkers());
+    }
+
+    @Test
+    void neverRunsMoreWorkersThanConfigured() throws Exception {
+        ConfigUtils.ytdlpWorkers = 1;
+        CompletableFuture<YtDlpWorkerPool.Result> a = CompletableFuture.supplyAsync(() -> metadataUnchecked("a"));
+        CompletableFuture<YtDlpWorkerPool.Result> b = CompletableFuture.supplyAsync(() -> metadataUnchecked("b"));
+
+        // The second borrower waits for the one worker instead of starting another
+        assertEquals(pid(a.get(TIMEOUT_MS, TimeUnit.MILLISECONDS)), pid(b.get(TIMEOUT_MS, TimeUnit.MILLISECONDS)));
+        assertEquals(1, YtDlpWorkerPool.getLiveWorkers());
+    }
+
+    @Test
+    void downloadPassesEventsThenFinishes(@TempDir File dir) throws Exception {
+        List<String> events = new ArrayList<>();
+        JSONObject request = new JSONObject()
+                .put("op", "download")
+                .put("query", "some song")
+                .put("output", new File(dir, "%(id)s.webm").getPath());
+
+        YtDlpWorkerPool.Result result = YtDlpWorkerPool.request(request, e -> events.add(e.getString("event")), TIMEOUT_MS);
+
+        assertTrue(result.ok());
+        assertEquals(List.of("info", "progress", "progress"), events);
+        File written = new File(dir, result.done().getString("video_id") + ".webm");
+        assertEquals(4096, written.length());
+    }
+
+    @Test
+    void failedRequestKeepsTheWorker() throws Exception {
+        YtDlpWorkerPool.Result failed = metadata("fail");
+        YtDlpWorkerPool.Result next = metadata("next");
+
+        assertFalse(failed.ok());
+        assertEquals("stub failure", failed.error());
+        assertEquals(pid(failed), pid(next));
+    }
+
+    @Test
+    void recyclesAfterMaxJobs() throws Exception {
+        ConfigUtils.ytdlpWorkerMaxJobs = 2;
+        long recycledBefore = YtDlpWorkerPool.getRecycledWorkers();
+
+        long first = pid(metadata("one"));
+        long second = pid(metadata("two"));
+        long third = pid(metadata("three"));
+
+        assertEquals(first, second);
+        assertNotEquals(first, third);
+        assertEquals(recycledBefore + 1, YtDlpWorkerPool.getRecycledWorkers());
+        assertEquals(1, YtDlpWorkerPool.getLiveWorkers());
+    }
+
+    @Test
+    void replacesAWorkerThatDiedWhileIdle() throws Exception {
+        long first = pid(metadata("one"));
+        ProcessHandle process = ProcessHandle.of(first).orElseThrow();
+        process.destroyForcibly();
+        process.onExit().get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        YtDlpWorkerPool.Result next = metadata("two");
+
+        assertTrue(next.ok());
+        assertNotEquals(first, pid(next));
+        assertEquals(1, YtDlpWorkerPool.getLiveWorkers());
+    }
+
+    @Test
+    void pingsIdleWorkersAndReplacesOnesThatDontAnswer() throws Exception {
+        YtDlpWorkerPool.pingAfterIdleMs = 0; // every borrow is a health check
+
+        long healthy = pid(metadata("one"));
+        assertEquals(healthy, pid(metadata("two")));
+
+        // The stub answers this request, then ignores pings; the check times out and the worker is replaced
+        long wedged = pid(metadata("wedge"));
+        long replacement = pid(metadata("three"));
+
+        assertEquals(healthy, wedged);
+        assertNotEquals(wedged, replacement);
+        assertEquals(1, YtDlpWorkerPool.getLiveWorkers());
+    }
+
+    @Test
+    void workerCrashingMidRequestFallsBack() throws Exception {
+        assertThrows(YtDlpWorkerPool.WorkerUnavailableException.class, () -> metadata("crash"));
+
+        // The dead worker is gone and the pool keeps serving with a new one
+        assertEquals(0, YtDlpWorkerPool.getLiveWorkers());
+        assertTrue(YtDlpWorkerPool.isEnabled());
+        assertTrue(metadata("after crash").ok());
+    }
+
+    @Test
+    void workerThatCannotStartFallsBackToOneShot() throws Exception {
+        ConfigUtils.ytdlpWorkerCommand = List.of("python3", "-u", stubScript(), "--fail-startup");
+
+        assertThrows(YtDlpWorkerPool.WorkerUnavailableException.class, () -> metadata("song"));
+
+        // Callers check isEnabled() first, so they go straight to one-shot yt-dlp until the back-off ends
+        assertFalse(YtDlpWorkerPool.isEnabled());
+        assertEquals(0, YtDlpWorkerPool.getLiveWorkers());
+    }
+
+    @Test
+    void zeroWorkersDisablesThePool() {
+        ConfigUtils.ytdlpWorkers = 0;
+
+        assertFalse(YtDlpWorkerPool.isEnabled());
+    }
+
+    private static YtDlpWorkerPool.Result metadata(String query) throws Exception {
+        return YtDlpWorkerPool.request(new JSONObject().put("op", "metadata").put("query", query), e -> {}, TIMEOUT_MS);
+    }
+
+    private static YtDlpWorkerPool.Result metadataUnchecked(String query) {
+        try {
+            return metadata(query);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long pid(YtDlpWorkerPool.Result result) {
+        return result.done().getLong("pid");
+    }
+
+    private static String stubScript() throws URISyntaxException {
+        return new File(YtDlpWorkerPoolTest.class.getResource("/stub_ytdlp_worker.py").toURI()).getAbsolutePath();
+    }
+}
@@ -0,0 +1,80 @@
+#!/usr/bin/env python3
+"""Stand-in for ytdlp_worker.py that speaks the same line-delimited JSON protocol without yt-dlp.
+
+Point ytdlp_worker_command at it to exercise YtDlpWorkerPool locally:
+
+  "ytdlp_worker_command": ["python3", "-u", "src/test/resources/stub_ytdlp_worker.py"]
+
+Every reply carries the worker's "pid", so callers can tell which process served them. The query picks
+the behaviour:
+
+  crash   the worker exits in the middle of the request
+  fail    the request ends with ok=false
+  wedge   the request succeeds, but the worker ignores every ping afterwards
+  other   metadata answers with a made-up track; download writes a few bytes to the output path
+
+Started with --fail-startup, the worker reports a fatal error instead of "ready" and exits.
+"""
+import hashlib
+import json
+import os
+import sys
+
+
+def emit(message):
+    message["pid"] = os.getpid()
+    sys.stdout.write(json.dumps(message) + "\n")
+    sys.stdout.flush()
+
+
+def summary(query):
+    video_id = "stub" + hashlib.md5(query.encode()).hexdigest()[:7]
+    return {"video_id": video_id, "title": "Stub: " + query, "duration": 123, "filesize_approx": 4096}
+
+
+def main():
+    if "--fail-startup" in sys.argv:
+        emit({"event": "fatal", "error": "stub worker told to fail"})
+        sys.exit(1)
+    emit({"event": "ready", "version": "stub"})
+
+    wedged = False
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        req = json.loads(line)
+        rid = req.get("id")
+        op = req.get("op")
+        query = req.get("query", "")
+
+        if op == "ping":
+            if not wedged:
+                emit({"id": rid, "event": "done", "ok": True})
+            continue
+        if query == "crash":
+            os._exit(3)
+        if query == "fail":
+            emit({"id": rid, "event": "done", "ok": False, "error": "stub failure"})
+            continue
+        if query == "wedge":
+            wedged = True
+
+        info = summary(query)
+        if op == "metadata":
+            emit(dict(info, id=rid, event="done", ok=True))
+        elif op == "download":
+            emit(dict(info, id=rid, event="info"))
+            output = req["output"].replace("%(id)s", info["video_id"])
+            with open(output, "wb") as f:
+                for done in (2048, 4096):
+                    f.write(b"\0" * 2048)
+                    emit({"id": rid, "event": "progress", "downloaded_bytes": done, "total_bytes": 4096,
+                          "speed": 0, "eta": 0})
+            emit(dict(info, id=rid, event="done", ok=True))
+        else:
+            emit({"id": rid, "event": "done", "ok": False, "error": "unknown op: %s" % op})
+
+
+if __name__ == "__main__":
+    main()